@@ -0,0 +1,42 @@
+package talkingcat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds task lists for the benchmarks, mixing todos, deadlines and events the way a real list would.
+ */
+class BenchmarkTasks {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 9, 0);
+
+    /**
+     * Creates a list of tasks where every third task is a todo, deadline or event in turn,
+     * and every fifth task is done.
+     *
+     * @param size The number of tasks to create.
+     * @return The new tasks.
+     */
+    static List<Task> create(int size) {
+        List<Task> tasks = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            LocalDateTime time = START.plusHours(i);
+            Task task;
+            switch (i % 3) {
+                case 0:
+                    task = new Todo("read chapter " + i + " of the book");
+                    break;
+                case 1:
+                    task = new Deadline("submit report " + i, time);
+                    break;
+                default:
+                    task = new Event("project meeting " + i, time, time.plusHours(2));
+            }
+            if (i % 5 == 0) {
+                task.markAsDone();
+            }
+            tasks.add(task);
+        }
+        return tasks;
+    }
+}
@@ -0,0 +1,51 @@
+package talkingcat;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures keyword search over the task list, for a keyword a third of the tasks contain and one none do,
+ * both as a substring search and as a whole-word search through the token index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FindBenchmark {
+    @Param({"1000", "100000"})
+    public int size;
+
+    private TaskList tasks;
+
+    @Setup
+    public void setUp() {
+        tasks = new TaskList(BenchmarkTasks.create(size));
+    }
+
+    @Benchmark
+    public List<Task> findHit() {
+        return tasks.findTasks("meeting");
+    }
+
+    @Benchmark
+    public List<Task> findMiss() {
+        return tasks.findTasks("groceries");
+    }
+
+    @Benchmark
+    public List<Task> findWordsAll() {
+        return tasks.findTasksByWords("project meeting", true);
+    }
+
+    @Benchmark
+    public List<Task> findWordsMiss() {
+        return tasks.findTasksByWords("groceries", false);
+    }
+}
@@ -0,0 +1,70 @@
+package talkingcat;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the unindexed keyword scan on pools of different sizes, against the sequential stream it replaced.
+ * The keyword "zq" matches no task, so the whole list is scanned; "7" matches about half the tasks,
+ * so a limited search stops after the first batch of chunks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ParallelFindBenchmark {
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private Task[] tasks;
+    private ForkJoinPool pool;
+    private ParallelSearch search;
+
+    @Setup
+    public void setUp() {
+        tasks = BenchmarkTasks.create(size).toArray(new Task[0]);
+        pool = new ForkJoinPool(threads);
+        search = new ParallelSearch(pool, 0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public List<Task> sequentialStream() {
+        return Arrays.stream(tasks)
+                .filter(task -> task.getDescription().toLowerCase().contains("zq"))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Task> parallelMiss() {
+        return search.find(tasks, "zq", 0, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public List<Task> parallelAllHits() {
+        return search.find(tasks, "7", 0, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public List<Task> parallelFirstPage() {
+        return search.find(tasks, "7", 0, 20);
+    }
+}
@@ -0,0 +1,47 @@
+package talkingcat;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures how long Parser takes to turn one line of user input into a command, for each command type.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ParserBenchmark {
+    private static final Map<String, String> INPUTS = Map.of(
+            "todo", "todo read book",
+            "deadline", "deadline return book /by 2024-10-10 1800",
+            "event", "event team meeting /from May 10 2024, 18:00 /to May 10 2024, 20:00",
+            "mark", "mark 42",
+            "unmark", "unmark 42",
+            "delete", "delete 42",
+            "find", "find book",
+            "list", "list",
+            "convert", "convert binary",
+            "bye", "bye");
+
+    @Param({"todo", "deadline", "event", "mark", "unmark", "delete", "find", "list", "convert", "bye"})
+    public String commandType;
+
+    private String input;
+
+    @Setup
+    public void setUp() {
+        input = INPUTS.get(commandType);
+    }
+
+    @Benchmark
+    public Command parse() throws TalkingCatException {
+        return Parser.parse(input);
+    }
+}
@@ -0,0 +1,50 @@
+package talkingcat;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures rendering the task list: the first page shown by the list command, a page in the middle
+ * of the list, and streaming the whole list in chunks to an output that discards it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RenderBenchmark {
+    @Param({"100", "10000", "100000"})
+    public int size;
+
+    private TaskList tasks;
+    private Ui ui;
+
+    @Setup
+    public void setUp() {
+        tasks = new TaskList(BenchmarkTasks.create(size));
+        ui = new Ui(Writer.nullWriter());
+    }
+
+    @Benchmark
+    public String formatFirstPage() {
+        return ui.formatTaskPage(tasks, 1, Ui.DEFAULT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public String formatMiddlePage() {
+        int middlePage = (size / Ui.DEFAULT_PAGE_SIZE) / 2 + 1;
+        return ui.formatTaskPage(tasks, middlePage, Ui.DEFAULT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public int streamTaskList() throws IOException {
+        return ui.streamTaskList(tasks);
+    }
+}
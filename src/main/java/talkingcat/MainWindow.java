@@ -64,7 +64,13 @@ public class MainWindow extends AnchorPane {
 
         try {
             Command command = Parser.parse(userInputText);
-            response = command.execute(tasks, ui, storage);
+            String result;
+            try {
+                result = command.execute(tasks, ui, storage);
+            } finally {
+                tasks.commitChange(userInputText);
+            }
+            response = command.render(result, tasks, ui);
         } catch (TalkingCatException e) {
             response = e.getMessage();
         }
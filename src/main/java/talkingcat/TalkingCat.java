@@ -1,9 +1,9 @@
 package talkingcat;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
-import java.util.Scanner;
 import java.io.File;
 import java.io.PrintWriter;
+import java.io.PrintStream;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.io.IOException;
@@ -25,6 +25,79 @@ import java.util.List;
 import java.util.stream.Collectors;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Stream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.nio.BufferUnderflowException;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.file.StandardCopyOption;
+import java.util.Base64;
+import java.util.zip.CRC32;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.io.EOFException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.HashSet;
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.LinkedHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.BitSet;
+import java.util.RandomAccess;
+import java.time.Month;
+import java.time.Year;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.io.BufferedWriter;
 
 
 /**
@@ -35,7 +108,11 @@ public class TalkingCat extends Application {
     private Storage storage;
     private TaskList tasks;
     private Ui ui;
-    private String FILE_PATH = "./data/talkingcat.txt/talkingcat.txt";
+    static final String FILE_PATH = "./data/talkingcat.txt/talkingcat.txt";
+    private static final long SAVE_QUIET_MILLIS = 250;
+    private static final long SAVE_MAX_DELAY_MILLIS = 2000;
+    private static final int FIRST_PAGE_SIZE = 200;
+    private final long startNanos = System.nanoTime();
     private ScrollPane scrollPane;
     private VBox dialogContainer;
     private TextField userInput;
@@ -49,13 +126,9 @@ public class TalkingCat extends Application {
      */
     public TalkingCat() {
         ui = new Ui();
-        storage = new Storage(FILE_PATH);
-        try {
-            tasks = new TaskList(storage.load());
-        } catch (TalkingCatException e) {
-            ui.showLoadingError();
-            tasks = new TaskList();
-        }
+        storage = new Storage(FILE_PATH, true);
+        storage.enableWriteBehind(SAVE_QUIET_MILLIS, SAVE_MAX_DELAY_MILLIS);
+        tasks = storage.loadProgressively(FIRST_PAGE_SIZE);
     }
 
     @Override
@@ -64,6 +137,16 @@ public class TalkingCat extends Application {
         setupSceneAndComponents();
         configureStage(stage);
         addInputHandlers();
+        if (LoadStats.IS_REPORTED) {
+            System.out.println(String.format("Ready for input in %.1f ms with %d tasks loaded%s",
+                    (System.nanoTime() - startNanos) / 1_000_000.0, tasks.getLoadedTasks().size(),
+                    tasks.isLoading() ? ", the rest are still loading" : ""));
+        }
+    }
+
+    @Override
+    public void stop() {
+        storage.flush();
     }
 
     /**
@@ -72,7 +155,6 @@ public class TalkingCat extends Application {
      * @param stage The primary stage for this application.
      */
     private void initializeStage(Stage stage) {
-        TalkingCat talkingCat = new TalkingCat();
         try {
             FXMLLoader fxmlLoader = new FXMLLoader(TalkingCat.class.getResource("/view/MainWindow.fxml"));
             AnchorPane ap = fxmlLoader.load();
@@ -180,16 +262,13 @@ public class TalkingCat extends Application {
 
         try {
             Command command = Parser.parse(userInputText);
-            command.execute(tasks, ui, storage);
-            if (command instanceof DeleteCommand || command instanceof AddTodoCommand || command instanceof AddEventCommand || command instanceof AddDeadlineCommand || command instanceof ListCommand || command instanceof MarkCommand || command instanceof UnmarkCommand) {
-                // Show updated task list after adding/deleting a task or when list command is invoked
-                response = ui.showTaskList(tasks);
-            } else if (command instanceof FindCommand) {
-                response = command.execute(tasks, ui, storage);
-            } else {
-                // For other commands, you can customize the response
-                response = "Command executed successfully.";
+            String result;
+            try {
+                result = command.execute(tasks, ui, storage);
+            } finally {
+                tasks.commitChange(userInputText);
             }
+            response = command.render(result, tasks, ui);
         } catch (TalkingCatException e) {
             // Handle exceptions, for example, invalid command, task not found, etc.
             response = e.getMessage();
@@ -213,19 +292,12 @@ public class TalkingCat extends Application {
      * the command loop to receive and process user input.
      */
     public void run() {
-        ui.showWelcome();
-        boolean isExit = false;
-        while (!isExit) {
-            try {
-                String fullCommand = ui.readCommand();
-                Command command = Parser.parse(fullCommand);
-                command.execute(tasks, ui, storage);
-                isExit = command.isExit(); // Check if the command signals to exit
-            } catch (TalkingCatException e) {
-                ui.showError(e.getMessage());
-            }
+        try {
+            new BatchRunner(storage, tasks, ui, BatchRunner.DEFAULT_CHECKPOINT_INTERVAL).run();
+            ui.closeInput();
+        } catch (IOException e) {
+            System.err.println("An error occurred while talking to the console: " + e.getMessage());
         }
-        ui.closeScanner();
     }
 
     public static void main(String[] args) {
@@ -239,11 +311,549 @@ public class TalkingCat extends Application {
  */
 class Launcher {
     public static void main(String[] args) {
+        if (args.length > 0 && BatchRunner.BATCH_FLAG.equals(args[0])) {
+            BatchRunner.main(args);
+            return;
+        }
+        if (args.length > 0 && TaskServer.SERVE_FLAG.equals(args[0])) {
+            TaskServer.main(args);
+            return;
+        }
         Application.launch(TalkingCat.class, args);
     }
 }
 
 
+/**
+ * Runs commands read from the console without starting the GUI, so that long command scripts can be
+ * piped through the application. Input is read through one buffered reader and every response goes
+ * through one buffered writer, which is only flushed when the next command is not already waiting.
+ * Mutations are not written as each command runs, but at a checkpoint every few commands and once
+ * the input ends.
+ */
+class BatchRunner {
+    /** The command-line flag that selects batch mode. */
+    static final String BATCH_FLAG = "--batch";
+    /** The number of commands run between two checkpoints when none is given. */
+    static final int DEFAULT_CHECKPOINT_INTERVAL = 10_000;
+    private static final String CHECKPOINT_FLAG = "--checkpoint";
+    private static final String DATA_FLAG = "--data";
+
+    private final Storage storage;
+    private final TaskList tasks;
+    private final Ui ui;
+    private final int checkpointInterval;
+
+    /**
+     * Creates a runner for the given task list.
+     *
+     * @param storage The storage that mutations are written to.
+     * @param tasks The task list that commands run against.
+     * @param ui The user interface that commands are read from and responses are written to.
+     * @param checkpointInterval The number of commands run between two writes to storage.
+     */
+    BatchRunner(Storage storage, TaskList tasks, Ui ui, int checkpointInterval) {
+        this.storage = storage;
+        this.tasks = tasks;
+        this.ui = ui;
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /**
+     * Runs batch mode with the data file and checkpoint interval given on the command line, reading
+     * commands from standard input and writing responses to standard output.
+     * Usage: {@code --batch [--checkpoint <commands>] [--data <data file>]}
+     */
+    static void main(String[] args) {
+        String filePath = TalkingCat.FILE_PATH;
+        int checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            if (CHECKPOINT_FLAG.equals(args[i])) {
+                checkpointInterval = Math.max(1, Integer.parseInt(args[i + 1]));
+            } else if (DATA_FLAG.equals(args[i])) {
+                filePath = args[i + 1];
+            }
+        }
+        Ui ui = new Ui();
+        Storage storage = new Storage(filePath, true);
+        storage.setMessageStream(System.err);
+        storage.deferWrites();
+        TaskList tasks;
+        try {
+            tasks = new TaskList(storage.load());
+        } catch (TalkingCatException e) {
+            System.err.println("An error occurred while loading tasks: " + e.getMessage());
+            tasks = new TaskList();
+        }
+        tasks.setPublishingOnCommit(false);
+        try {
+            new BatchRunner(storage, tasks, ui, checkpointInterval).run();
+        } catch (IOException e) {
+            System.err.println("An error occurred while talking to the console: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs commands until the exit command or the end of the input, then writes any changes still held back.
+     *
+     * @return The number of commands run.
+     * @throws IOException If the console cannot be read from or written to.
+     */
+    int run() throws IOException {
+        int count = 0;
+        try {
+            ui.showResponse(ui.showWelcome());
+            boolean isExit = false;
+            String line;
+            while (!isExit && (line = ui.readCommand()) != null) {
+                String response;
+                try {
+                    Command command = Parser.parse(line);
+                    try {
+                        response = command.execute(tasks, ui, storage);
+                    } finally {
+                        tasks.commitChange(line);
+                    }
+                    isExit = command.isExit();
+                } catch (TalkingCatException e) {
+                    response = ui.showError(e.getMessage());
+                }
+                ui.showResponse(response);
+                if (++count % checkpointInterval == 0) {
+                    storage.flush();
+                }
+                if (!ui.hasPendingInput()) {
+                    ui.flushOutput();
+                }
+            }
+        } finally {
+            storage.flush();
+            ui.flushOutput();
+        }
+        return count;
+    }
+}
+
+
+/**
+ * Serves one task list to several clients at once over a loopback port or a Unix domain socket, so that
+ * scripts and other tools can share the list instead of each loading and rewriting the data file.
+ * Clients send one command per line, in the same grammar as the chat window. Each reply starts with a line
+ * holding the number of lines that follow. Every client is served by its own thread. Commands that only
+ * read the list are answered on that thread from the latest snapshot. All other commands are queued for a
+ * single writer thread, which is the only thread that changes the list.
+ */
+class TaskServer {
+    /** The command-line flag that selects server mode. */
+    static final String SERVE_FLAG = "--serve";
+    /** The loopback port the server listens on when no port or socket is given. */
+    static final int DEFAULT_PORT = 5151;
+    private static final String PORT_FLAG = "--port";
+    private static final String SOCKET_FLAG = "--socket";
+    private static final String DATA_FLAG = "--data";
+    private static final long SAVE_QUIET_MILLIS = 250;
+    private static final long SAVE_MAX_DELAY_MILLIS = 2000;
+    private static final int MAX_QUEUED_COMMANDS = 1024;
+
+    private final Storage storage;
+    private final TaskList tasks;
+    private final Ui ui;
+    private final BlockingQueue<QueuedCommand> queue = new ArrayBlockingQueue<>(MAX_QUEUED_COMMANDS);
+    private final AtomicInteger clientCount = new AtomicInteger();
+
+    /**
+     * Creates a server for the given task list. The list must have finished loading.
+     *
+     * @param storage The storage that mutations are written to.
+     * @param tasks The task list to serve.
+     * @param ui The user interface used to format replies.
+     */
+    TaskServer(Storage storage, TaskList tasks, Ui ui) {
+        this.storage = storage;
+        this.tasks = tasks;
+        this.ui = ui;
+    }
+
+    /**
+     * Runs server mode with the address and data file given on the command line, until the process is stopped.
+     * Usage: {@code --serve [--port <port> | --socket <path>] [--data <data file>]}
+     */
+    static void main(String[] args) {
+        SocketAddress address;
+        try {
+            address = parseAddress(args);
+        } catch (TalkingCatException e) {
+            System.err.println("Could not serve the task list: " + e.getMessage());
+            return;
+        }
+        String filePath = TalkingCat.FILE_PATH;
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            if (DATA_FLAG.equals(args[i])) {
+                filePath = args[i + 1];
+            }
+        }
+        Storage storage = new Storage(filePath, true);
+        storage.setMessageStream(System.err);
+        storage.enableWriteBehind(SAVE_QUIET_MILLIS, SAVE_MAX_DELAY_MILLIS);
+        TaskList tasks;
+        try {
+            tasks = new TaskList(storage.load());
+        } catch (TalkingCatException e) {
+            System.err.println("An error occurred while loading tasks: " + e.getMessage());
+            tasks = new TaskList();
+        }
+        try {
+            new TaskServer(storage, tasks, new Ui()).serve(address);
+        } catch (IOException e) {
+            System.err.println("Could not serve the task list: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Picks the address given by a {@code --port} or {@code --socket} flag, or the default loopback port.
+     *
+     * @param args The command-line arguments.
+     * @return A loopback address or a Unix domain socket address.
+     * @throws TalkingCatException If the port is not a valid port number or the socket is not a valid path.
+     */
+    static SocketAddress parseAddress(String[] args) throws TalkingCatException {
+        SocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), DEFAULT_PORT);
+        for (int i = 0; i + 1 < args.length; i++) {
+            try {
+                if (PORT_FLAG.equals(args[i])) {
+                    address = new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(args[i + 1]));
+                } else if (SOCKET_FLAG.equals(args[i])) {
+                    address = UnixDomainSocketAddress.of(args[i + 1]);
+                }
+            } catch (IllegalArgumentException e) {
+                // Thrown for a port that is not a number or out of range, and for a socket path that is not valid.
+                throw new TalkingCatException("Invalid " + args[i] + " value: " + args[i + 1]);
+            }
+        }
+        return address;
+    }
+
+    /**
+     * Listens on the given address and serves clients until the process is stopped.
+     *
+     * @param address A loopback address or a Unix domain socket address.
+     * @throws IOException If the address cannot be listened on.
+     */
+    void serve(SocketAddress address) throws IOException {
+        boolean isUnixSocket = address instanceof UnixDomainSocketAddress;
+        if (isUnixSocket) {
+            Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+        }
+        Thread writer = new Thread(this::runWriter, "talkingcat-command-writer");
+        writer.setDaemon(true);
+        writer.start();
+        try (ServerSocketChannel server = ServerSocketChannel.open(
+                isUnixSocket ? StandardProtocolFamily.UNIX : StandardProtocolFamily.INET)) {
+            server.bind(address);
+            System.out.println("Serving " + tasks.getSize() + " tasks on " + address);
+            while (true) {
+                SocketChannel client = server.accept();
+                if (!isUnixSocket) {
+                    client.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                }
+                Thread thread = new Thread(() -> serveClient(client),
+                        "talkingcat-client-" + clientCount.incrementAndGet());
+                thread.setDaemon(true);
+                thread.start();
+            }
+        } finally {
+            if (isUnixSocket) {
+                Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+            }
+        }
+    }
+
+    /**
+     * Answers the commands of one client until it disconnects or sends the exit command.
+     * Replies are flushed once no further command from the client is already waiting.
+     */
+    private void serveClient(SocketChannel client) {
+        try (BufferedReader input = new BufferedReader(Channels.newReader(client, StandardCharsets.UTF_8));
+                Writer output = new BufferedWriter(Channels.newWriter(client, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = input.readLine()) != null) {
+                String reply;
+                boolean isExit = false;
+                try {
+                    Command command = Parser.parse(line);
+                    isExit = command.isExit();
+                    reply = isExit ? ui.showGoodbye() : run(command, line);
+                } catch (TalkingCatException e) {
+                    reply = ui.showError(e.getMessage());
+                } catch (RuntimeException e) {
+                    // Reply as the writer does, so that one bad command does not end the session.
+                    reply = ui.showError("Could not run the command: " + e);
+                }
+                writeReply(output, reply);
+                if (isExit) {
+                    break;
+                }
+                if (!input.ready()) {
+                    output.flush();
+                }
+            }
+        } catch (IOException e) {
+            // The client has gone away, and closing the streams has closed its channel.
+        }
+    }
+
+    /**
+     * Answers a command from the latest snapshot if it only reads the list, or waits for the writer to run it.
+     */
+    private String run(Command command, String line) throws TalkingCatException {
+        String reply = command.read(tasks.snapshot(), ui);
+        if (reply != null) {
+            return reply;
+        }
+        QueuedCommand queued = new QueuedCommand(command, line);
+        try {
+            queue.put(queued);
+            return queued.reply.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TalkingCatException("The server is shutting down.");
+        } catch (ExecutionException e) {
+            throw new TalkingCatException("Could not run the command: " + e.getCause());
+        }
+    }
+
+    /**
+     * Runs queued commands one at a time. Each command publishes a snapshot of the list when it is committed,
+     * before its client gets the reply, so a client always reads its own changes.
+     */
+    private void runWriter() {
+        while (true) {
+            QueuedCommand queued;
+            try {
+                queued = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                String reply;
+                try {
+                    reply = queued.command.execute(tasks, ui, storage);
+                } finally {
+                    tasks.commitChange(queued.line);
+                }
+                queued.reply.complete(reply);
+            } catch (TalkingCatException e) {
+                queued.reply.complete(ui.showError(e.getMessage()));
+            } catch (RuntimeException e) {
+                queued.reply.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Writes a reply as a line holding its number of lines, followed by those lines.
+     * A single line break at the end of the reply is dropped.
+     *
+     * @param output The writer to the client.
+     * @param reply The reply to write.
+     * @throws IOException If the reply cannot be written.
+     */
+    static void writeReply(Writer output, String reply) throws IOException {
+        int end = reply.endsWith("\n") ? reply.length() - 1 : reply.length();
+        int lineCount = 1;
+        for (int i = 0; i < end; i++) {
+            if (reply.charAt(i) == '\n') {
+                lineCount++;
+            }
+        }
+        output.write(Integer.toString(lineCount));
+        output.write('\n');
+        output.write(reply, 0, end);
+        output.write('\n');
+    }
+
+    /**
+     * Reads a reply written by {@link #writeReply(Writer, String)}.
+     *
+     * @param input The reader from the server.
+     * @return The reply, or null if the server has closed the connection.
+     * @throws IOException If the reply cannot be read or is cut short.
+     */
+    static String readReply(BufferedReader input) throws IOException {
+        String header = input.readLine();
+        if (header == null) {
+            return null;
+        }
+        int lineCount = Integer.parseInt(header);
+        StringBuilder reply = new StringBuilder();
+        for (int i = 0; i < lineCount; i++) {
+            String line = input.readLine();
+            if (line == null) {
+                throw new EOFException("The reply ended after " + i + " of " + lineCount + " lines.");
+            }
+            if (i > 0) {
+                reply.append('\n');
+            }
+            reply.append(line);
+        }
+        return reply.toString();
+    }
+
+    /**
+     * A command waiting for the writer, with the reply its client is waiting for.
+     */
+    private static class QueuedCommand {
+        private final Command command;
+        private final String line;
+        private final CompletableFuture<String> reply = new CompletableFuture<>();
+
+        QueuedCommand(Command command, String line) {
+            this.command = command;
+            this.line = line;
+        }
+    }
+}
+
+
+/**
+ * Drives a running TaskServer from several clients at once and reports the latency and throughput it sees.
+ * Each client sends its next command as soon as the reply to the previous one arrives. The first tenth of
+ * each client's commands warm the server up and are not counted. Commands that change the list add tasks
+ * to it, so point the server at a scratch data file.
+ */
+class LoadGenerator {
+    private static final int DEFAULT_CLIENTS = 8;
+    private static final int DEFAULT_REQUESTS = 10_000;
+    private static final int DEFAULT_WRITE_PERCENT = 20;
+
+    /**
+     * Runs the load and prints a report.
+     * Usage: {@code LoadGenerator [--port <port> | --socket <path>] [--clients <n>] [--requests <n per client>]
+     * [--writes <percent>]}
+     */
+    public static void main(String[] args) throws Exception {
+        int clients = DEFAULT_CLIENTS;
+        int requests = DEFAULT_REQUESTS;
+        int writePercent = DEFAULT_WRITE_PERCENT;
+        for (int i = 0; i + 1 < args.length; i++) {
+            if ("--clients".equals(args[i])) {
+                clients = Integer.parseInt(args[i + 1]);
+            } else if ("--requests".equals(args[i])) {
+                requests = Integer.parseInt(args[i + 1]);
+            } else if ("--writes".equals(args[i])) {
+                writePercent = Integer.parseInt(args[i + 1]);
+            }
+        }
+        SocketAddress address = TaskServer.parseAddress(args);
+        int warmUp = requests / 10;
+        long[][] latencies = new long[clients][requests - warmUp];
+        long[] startNanos = new long[1];
+        CyclicBarrier measuring = new CyclicBarrier(clients, () -> startNanos[0] = System.nanoTime());
+        List<Thread> threads = new ArrayList<>();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        for (int c = 0; c < clients; c++) {
+            int client = c;
+            int writes = writePercent;
+            int total = requests;
+            Thread thread = new Thread(() -> {
+                try {
+                    runClient(address, client, total, warmUp, writes, measuring, latencies[client]);
+                } catch (Exception e) {
+                    failure.compareAndSet(null, e);
+                    measuring.reset();
+                }
+            }, "load-client-" + client);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsedNanos = System.nanoTime() - startNanos[0];
+        if (failure.get() != null) {
+            System.out.println("Load test failed: " + failure.get());
+            return;
+        }
+        System.out.println(report(latencies, clients, elapsedNanos));
+    }
+
+    /**
+     * Sends one client's commands over its own connection, timing each round trip once warm-up is over.
+     */
+    private static void runClient(SocketAddress address, int client, int requests, int warmUp, int writePercent,
+            CyclicBarrier measuring, long[] latencies) throws Exception {
+        Random random = new Random(client);
+        try (SocketChannel channel = connect(address);
+                BufferedReader input = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8));
+                Writer output = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8))) {
+            for (int i = 0; i < requests; i++) {
+                if (i == warmUp) {
+                    measuring.await();
+                }
+                String command;
+                if (random.nextInt(100) < writePercent) {
+                    command = "todo load test " + client + "-" + i;
+                } else {
+                    command = random.nextBoolean() ? "list" : "find load test " + client;
+                }
+                long start = System.nanoTime();
+                output.write(command);
+                output.write('\n');
+                output.flush();
+                if (TaskServer.readReply(input) == null) {
+                    throw new EOFException("The server closed the connection.");
+                }
+                if (i >= warmUp) {
+                    latencies[i - warmUp] = System.nanoTime() - start;
+                }
+            }
+            output.write("bye\n");
+            output.flush();
+        }
+    }
+
+    /**
+     * Opens a connection that sends each command as soon as it is flushed.
+     */
+    private static SocketChannel connect(SocketAddress address) throws IOException {
+        SocketChannel channel = SocketChannel.open(address);
+        if (address instanceof InetSocketAddress) {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        }
+        return channel;
+    }
+
+    /**
+     * Summarizes the counted round trips of every client.
+     */
+    private static String report(long[][] latencies, int clients, long elapsedNanos) {
+        int count = 0;
+        for (long[] clientLatencies : latencies) {
+            count += clientLatencies.length;
+        }
+        long[] all = new long[count];
+        int next = 0;
+        for (long[] clientLatencies : latencies) {
+            System.arraycopy(clientLatencies, 0, all, next, clientLatencies.length);
+            next += clientLatencies.length;
+        }
+        Arrays.sort(all);
+        if (count == 0) {
+            return "No requests were counted.";
+        }
+        return String.format("%d requests from %d clients in %.0f ms: %.0f requests/s\n"
+                        + "Latency p50 %d us, p99 %d us, max %d us",
+                count, clients, elapsedNanos / 1e6, count / (elapsedNanos / 1e9),
+                percentile(all, 0.50) / 1000, percentile(all, 0.99) / 1000, all[count - 1] / 1000);
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        int rank = (int) Math.ceil(fraction * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+}
+
+
 class TalkingCatException extends Exception {
     public TalkingCatException(String message) {
         super(message);
@@ -255,13 +865,40 @@ class TalkingCatException extends Exception {
  * and reading user input.
  */
 class Ui {
-    private Scanner scanner;
+    /** The number of tasks shown by the list command when no page size is given. */
+    static final int DEFAULT_PAGE_SIZE = 50;
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("MMM dd yyyy");
+    private static final int ROWS_PER_CHUNK = 512;
+
+    private BufferedReader input;
+    private Writer output;
 
     /**
-     * Constructs a new Ui instance. Initializes the scanner used to read user input.
+     * Constructs a new Ui instance that reads user input from the console
+     * and writes its output to the console.
      */
     public Ui() {
-        scanner = new Scanner(System.in);
+        this(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Constructs a new Ui instance that reads user input from the console and streams long output to the given writer.
+     *
+     * @param output The writer that long output is streamed to.
+     */
+    public Ui(Writer output) {
+        this(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)), output);
+    }
+
+    /**
+     * Constructs a new Ui instance that reads user input from the given reader and writes its output to the given writer.
+     *
+     * @param input The reader that user input is read from.
+     * @param output The writer that output is written to.
+     */
+    public Ui(BufferedReader input, Writer output) {
+        this.input = input;
+        this.output = output;
     }
 
     /**
@@ -300,31 +937,49 @@ class Ui {
      * @return A message string indicating the task has been added and the current task count.
      */
     public String showTaskAdded(Task task, int taskCount) {
-        return "Got it. I've added this task:\n  " + task + "\nNow you have " + taskCount + " tasks in the list.";
+        return "Got it. I've added this task:\n  " + task + " #" + task.getId()
+                + "\nNow you have " + taskCount + " tasks in the list.";
     }
 
     /**
-     * Displays the list of tasks to the user.
+     * Reads a command from the user input.
      *
-     * @param tasks The TaskList containing the tasks to be displayed.
-     * @return A string representing the list of tasks.
+     * @return The command string entered by the user, or null at the end of the input.
+     * @throws IOException If the input cannot be read.
      */
-    public String showTaskList(TaskList tasks) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("Here are the tasks in your list:\n");
-        for (int i = 0; i < tasks.getSize(); i++) {
-            sb.append((i + 1)).append(".").append(tasks.getTask(i)).append("\n");
-        }
-        return sb.toString();
+    public String readCommand() throws IOException {
+        return input.readLine();
     }
 
     /**
-     * Reads a command from the user input.
+     * Checks whether more user input can be read without waiting for it.
      *
-     * @return The command string entered by the user.
+     * @return true if the next command has already arrived.
+     * @throws IOException If the input cannot be read.
      */
-    public String readCommand() {
-        return scanner.nextLine();
+    public boolean hasPendingInput() throws IOException {
+        return input.ready();
+    }
+
+    /**
+     * Writes a response to the output, followed by a line separator. The output is buffered,
+     * so it may not appear until {@link #flushOutput()} is called.
+     *
+     * @param response The response to write.
+     * @throws IOException If the output cannot be written to.
+     */
+    public void showResponse(String response) throws IOException {
+        output.write(response);
+        output.write(System.lineSeparator());
+    }
+
+    /**
+     * Writes out any output that is still buffered.
+     *
+     * @throws IOException If the output cannot be written to.
+     */
+    public void flushOutput() throws IOException {
+        output.flush();
     }
 
     /**
@@ -335,30 +990,32 @@ class Ui {
     }
 
     /**
-     * Closes the scanner.
+     * Closes the reader that user input is read from.
+     *
+     * @throws IOException If the input cannot be closed.
      */
-    public void closeScanner() {
-        scanner.close();
+    public void closeInput() throws IOException {
+        input.close();
     }
 
     /**
      * Displays a message indicating a task has been marked as done.
      *
      * @param task The task that has been marked as done.
+     * @return A message string indicating the task has been marked as done.
      */
-    public void showMarkedTask(Task task) {
-        System.out.println("Nice! I've marked this task as done:");
-        System.out.println("  " + task);
+    public String showMarkedTask(Task task) {
+        return "Nice! I've marked this task as done:\n  " + task;
     }
 
     /**
      * Displays a message indicating a task has been marked as not done.
      *
      * @param task The task that has been marked as not done.
+     * @return A message string indicating the task has been marked as not done.
      */
-    public void showUnmarkedTask(Task task) {
-        System.out.println("OK, I've marked this task as not done yet:");
-        System.out.println("  " + task);
+    public String showUnmarkedTask(Task task) {
+        return "OK, I've marked this task as not done yet:\n  " + task;
     }
 
     /**
@@ -366,11 +1023,10 @@ class Ui {
      *
      * @param task The task that has been deleted.
      * @param taskCount The total number of tasks remaining in the list.
+     * @return A message string indicating the task has been deleted and the current task count.
      */
-    public void showDeletedTask(Task task, int taskCount) {
-        System.out.println("Noted. I've removed this task:");
-        System.out.println("  " + task);
-        System.out.println("Now you have " + taskCount + " tasks in the list.");
+    public String showDeletedTask(Task task, int taskCount) {
+        return "Noted. I've removed this task:\n  " + task + "\nNow you have " + taskCount + " tasks in the list.";
     }
 
     /**
@@ -385,7 +1041,7 @@ class Ui {
         } else {
             StringBuilder response = new StringBuilder("Here are the matching tasks in your list:\n");
             for (int i = 0; i < matchedTasks.size(); i++) {
-                response.append(i + 1).append(".").append(matchedTasks.get(i)).append("\n");
+                appendTask(response, i + 1, matchedTasks.get(i));
             }
             return response.toString();
         }
@@ -398,583 +1054,5402 @@ class Ui {
      * @return A string representation of the tasks list.
      */
     public String formatMatchedTasks(List<Task> tasks) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("Here are the matching tasks in your list:\n");
-        for (int i = 0; i < tasks.size(); i++) {
-            sb.append(i + 1).append(".").append(tasks.get(i)).append("\n");
-        }
-        return sb.toString();
+        return formatMatchedTasks(tasks, 0, Integer.MAX_VALUE);
     }
 
     /**
-     * Formats the task list into a string.
+     * Formats one page of matching tasks, numbered from their place among all the matches.
+     * A page that is followed by more matches ends with a hint on how to see the next one.
      *
-     * @param tasks The TaskList to be formatted.
-     * @return A string representation of the task list.
+     * @param tasks The matching tasks on the page, followed by the first match after it if there is one.
+     * @param offset The number of matches before the page.
+     * @param limit The size of the page.
+     * @return A string representation of the page.
      */
-    public String formatTaskList(TaskList tasks) {
-        if (tasks.getSize() == 0) {
-            return "Task list is empty.";
-        }
-        StringBuilder response = new StringBuilder("Here are the tasks in your list:\n");
-        for (int i = 0; i < tasks.getSize(); i++) {
-            Task task = tasks.getTask(i);
-            response.append(i + 1).append(".").append(task).append("\n");
+    public String formatMatchedTasks(List<Task> tasks, int offset, int limit) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Here are the matching tasks in your list:\n");
+        for (int i = 0; i < tasks.size() && i < limit; i++) {
+            appendTask(sb, offset + i + 1, tasks.get(i));
         }
-        return response.toString();
+        return appendMatchFooter(sb, tasks.size(), offset, limit);
     }
-}
-
-
-/**
- * Handles storage operations for talkingcat application, including loading from and saving tasks to a file.
- */
-class Storage {
-    private String filePath;
 
     /**
-     * Creates a new Storage instance.
+     * Formats one page of matching tasks in a snapshot of the task list, showing each task with its status
+     * in the snapshot.
      *
-     * @param filePath The path of the file where tasks are stored.
+     * @param snapshot The snapshot of the task list.
+     * @param positions The positions of the matching tasks on the page, followed by the position of the first
+     *     match after it if there is one.
+     * @param offset The number of matches before the page.
+     * @param limit The size of the page.
+     * @return A string representation of the page.
      */
-    public Storage(String filePath) {
-        this.filePath = filePath;
-        ensureFileExists();
+    public String formatMatchedTasks(TaskSnapshot snapshot, int[] positions, int offset, int limit) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Here are the matching tasks in your list:\n");
+        for (int i = 0; i < positions.length && i < limit; i++) {
+            appendTask(sb, offset + i + 1, snapshot, positions[i]);
+        }
+        return appendMatchFooter(sb, positions.length, offset, limit);
     }
 
     /**
-     * Ensures that the storage file exists. If it does not, the method attempts to create it.
+     * Ends a page of matches with a hint on how to see the next one, if a match was found after the page.
      */
-    private void ensureFileExists() {
-        try {
-            File file = new File(filePath);
-            File parentDirectory = file.getParentFile();
-            if (parentDirectory != null && !parentDirectory.exists()) {
-                parentDirectory.mkdirs(); // Create the directory if it doesn't exist
-            }
-            if (!file.exists()) {
-                file.createNewFile(); // Create the file if it doesn't exist
-            }
-        } catch (IOException e) {
-            System.out.println("An error occurred while ensuring the data file exists: " + e.getMessage());
+    private static String appendMatchFooter(StringBuilder sb, int found, int offset, int limit) {
+        if (found > limit) {
+            int end = offset + limit;
+            sb.append("Showing matches ").append(offset + 1).append(" to ").append(end)
+                    .append(". Use --offset ").append(end).append(" to see more.\n");
         }
+        return sb.toString();
     }
 
     /**
-     * Loads tasks from the storage file.
+     * Formats one page of the tasks loaded so far while the rest of the list is still loading.
      *
-     * @return A list of tasks loaded from the file.
-     * @throws TalkingCatException If the file cannot be read.
+     * @param tasks The tasks on the page.
+     * @param firstNumber The number of the first task on the page.
+     * @return A string representation of the page, flagged as incomplete.
      */
-    public List<Task> load() throws TalkingCatException {
-        File file = new File(filePath);
-        if (!file.exists()) {
-            throw new TalkingCatException("File not found");
-        }
-
-        try {
-            return Files.lines(Paths.get(filePath))
-                    .map(this::parseLineToTask)
-                    .filter(java.util.Objects::nonNull)
-                    .collect(Collectors.toList());
-        } catch (IOException e) {
-            throw new TalkingCatException("Error reading from file: " + e.getMessage());
+    public String formatLoadingTaskList(List<Task> tasks, int firstNumber) {
+        StringBuilder response = new StringBuilder("Here are the tasks in your list:\n");
+        for (int i = 0; i < tasks.size(); i++) {
+            appendTask(response, firstNumber + i, tasks.get(i));
         }
+        return response.append("Still loading, the total is not known yet.\n").toString();
     }
 
     /**
-     * Parses a single line from the storage file into a Task object.
+     * Formats one page of the task list, followed by the total number of tasks and how to see the next page.
+     * Only the tasks on the page are rendered.
      *
-     * @param line The line to be parsed.
-     * @return The Task object created from the line, or null if the task is invalid.
+     * @param tasks The task list.
+     * @param page The page to show, starting from 1.
+     * @param pageSize The number of tasks on each page.
+     * @return A string representation of the page.
      */
-    private Task parseLineToTask(String line) {
-        try {
-            String[] parts = line.split(" \\| ");
-            String type = parts[0];
-            boolean isDone = parts[1].equals("1");
-            String description = parts[2];
-            Task task = createTask(type, description, parts);
-            if (isDone) task.markAsDone();
-            return task;
-        } catch (TalkingCatException | DateTimeParseException e) {
-            System.out.println("Skipping invalid task: " + line);
-            return null;
+    public String formatTaskPage(TaskList tasks, int page, int pageSize) {
+        int total = tasks.getSize();
+        String missingPage = describeMissingPage(total, page, pageSize);
+        if (missingPage != null) {
+            return missingPage;
+        }
+        int from = (page - 1) * pageSize;
+        List<Task> pageTasks = tasks.getTasks(from, pageSize);
+        StringBuilder response = new StringBuilder("Here are the tasks in your list:\n");
+        for (int i = 0; i < pageTasks.size(); i++) {
+            appendTask(response, from + i + 1, pageTasks.get(i));
         }
+        return appendPageFooter(response, total, page, pageSize, pageTasks.size());
     }
 
     /**
-     * Creates a Task object based on the type and description provided.
+     * Formats one page of a snapshot of the task list, showing each task with its status in the snapshot.
      *
-     * @param type The type of the task (e.g., "T" for todo).
-     * @param description The description of the task.
-     * @param parts An array containing additional information needed to create the task.
-     * @return The created Task object.
-     * @throws TalkingCatException If the task type is unknown or format is invalid.
+     * @param snapshot The snapshot of the task list.
+     * @param page The page to show, starting from 1.
+     * @param pageSize The number of tasks on each page.
+     * @return A string representation of the page.
      */
-    private Task createTask(String type, String description, String[] parts) throws TalkingCatException {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
-        switch (type) {
-            case "T":
-                return new Todo(description);
-            case "D":
-                if (parts.length < 4) throw new TalkingCatException("Invalid deadline format in file.");
-                LocalDateTime byDate = LocalDateTime.parse(parts[3], formatter);
-                return new Deadline(description, byDate);
-            case "E":
-                if (parts.length < 5) throw new TalkingCatException("Invalid event format in file.");
-                LocalDateTime from = LocalDateTime.parse(parts[3], formatter);
-                LocalDateTime to = LocalDateTime.parse(parts[4], formatter);
-                return new Event(description, from, to);
-            default:
-                throw new TalkingCatException("Unknown task type: " + type);
+    public String formatTaskPage(TaskSnapshot snapshot, int page, int pageSize) {
+        int total = snapshot.size();
+        String missingPage = describeMissingPage(total, page, pageSize);
+        if (missingPage != null) {
+            return missingPage;
+        }
+        int from = (page - 1) * pageSize;
+        int to = (int) Math.min(total, (long) from + pageSize);
+        StringBuilder response = new StringBuilder("Here are the tasks in your list:\n");
+        for (int i = from; i < to; i++) {
+            appendTask(response, i + 1, snapshot, i);
         }
+        return appendPageFooter(response, total, page, pageSize, to - from);
     }
 
     /**
-     * Saves the current list of tasks to the storage file.
+     * Explains why a page cannot be shown.
      *
-     * @param tasks The list of tasks to be saved.
+     * @return The explanation, or null if the page exists.
      */
-    public void save(TaskList tasks) {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(filePath))) {
-            for (int i = 0; i < tasks.getSize(); i++) {
-                Task task = tasks.getTask(i);
-                writer.println(taskToFileString(task));
-            }
-        } catch (IOException e) {
-            System.out.println("An error occurred while saving tasks to file: " + e.getMessage());
+    private static String describeMissingPage(int total, int page, int pageSize) {
+        if (total == 0) {
+            return "Task list is empty.";
+        }
+        int pageCount = (int) ((total + (long) pageSize - 1) / pageSize);
+        if (page > pageCount) {
+            return "There is no page " + page + ". The list has " + pageCount
+                    + (pageCount == 1 ? " page." : " pages.");
         }
+        return null;
     }
 
     /**
-     * Converts a Task object into a string representation suitable for storage.
-     *
-     * @param task The task to be converted.
-     * @return The string representation of the task.
+     * Ends a page with the total number of tasks and, if there are several pages, how to see the next one.
      */
-    private String taskToFileString(Task task) {
-        String type = task instanceof Todo ? "T" :
-                task instanceof Deadline ? "D" :
-                        task instanceof Event ? "E" : "";
-        String status = task.isDone ? "1" : "0";
-        String details = task.getDescription();
-        String additionalInfo = "";
+    private static String appendPageFooter(StringBuilder response, int total, int page, int pageSize,
+            int shown) {
+        int pageCount = (int) ((total + (long) pageSize - 1) / pageSize);
+        if (pageCount == 1) {
+            return response.append("You have ").append(total).append(total == 1 ? " task" : " tasks")
+                    .append(" in the list.\n").toString();
+        }
+        int from = (page - 1) * pageSize;
+        response.append("Showing tasks ").append(from + 1).append(" to ").append(from + shown)
+                .append(" of ").append(total).append(" (page ").append(page).append(" of ").append(pageCount)
+                .append(").");
+        if (page < pageCount) {
+            response.append(" Use \"list page ").append(page + 1).append("\" to see more.");
+        }
+        return response.append("\n").toString();
+    }
 
-        if (task instanceof Deadline) {
-            Deadline deadline = (Deadline) task;
-            additionalInfo = " | " + deadline.getBy().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"));
-        } else if (task instanceof Event) {
-            Event event = (Event) task;
-            additionalInfo = " | " + event.getFrom().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")) +
-                    " | " + event.getTo().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"));
+    /**
+     * Writes the whole task list to the output, rendering a chunk of rows at a time
+     * so that the full list is never held in memory as one string.
+     *
+     * @param tasks The task list to write.
+     * @return The number of tasks written.
+     * @throws IOException If the output cannot be written to.
+     */
+    public int streamTaskList(TaskList tasks) throws IOException {
+        StringBuilder chunk = new StringBuilder();
+        int number = 0;
+        for (Task task : tasks.asList()) {
+            appendTask(chunk, ++number, task);
+            if (number % ROWS_PER_CHUNK == 0) {
+                output.append(chunk);
+                chunk.setLength(0);
+            }
         }
+        output.append(chunk);
+        output.flush();
+        return number;
+    }
 
-        return type + " | " + status + " | " + details + additionalInfo;
+    /**
+     * Formats every task in a snapshot of the task list, showing each task with its status in the snapshot.
+     *
+     * @param snapshot The snapshot of the task list.
+     * @return A string representation of the whole list, followed by the number of tasks.
+     */
+    public String formatTaskList(TaskSnapshot snapshot) {
+        StringBuilder response = new StringBuilder();
+        for (int i = 0; i < snapshot.size(); i++) {
+            appendTask(response, i + 1, snapshot, i);
+        }
+        return response.append("Listed all ").append(snapshot.size()).append(" tasks.").toString();
     }
-}
 
-/**
- * This class is responsible for parsing user input into command objects for execution.
- */
-class Parser {
-    private static final DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HHmm");
+    /**
+     * Formats the deadlines due by a given time.
+     *
+     * @param tasks The deadlines, earliest first.
+     * @param before The latest due time that was included.
+     * @return A string representation of the deadlines.
+     */
+    public String formatDueTasks(List<Task> tasks, LocalDateTime before) {
+        String time = DateTimeCodec.format(before, DateTimeCodec.Layout.DISPLAY);
+        if (tasks.isEmpty()) {
+            return "Nothing is due by " + time + ".";
+        }
+        StringBuilder response = new StringBuilder("Here are the deadlines due by ").append(time).append(":\n");
+        for (int i = 0; i < tasks.size(); i++) {
+            appendTask(response, i + 1, tasks.get(i));
+        }
+        return response.toString();
+    }
 
     /**
-     * Parses the user input into a command object.
+     * Formats the events taking place on a given day.
      *
-     * @param fullCommand The full string input by the user.
-     * @return The command object corresponding to the user input.
-     * @throws TalkingCatException If the command is unknown or if there is a format issue with the input.
+     * @param tasks The events, ordered by start time.
+     * @param date The day that was looked up.
+     * @return A string representation of the events.
      */
-    public static Command parse(String fullCommand) throws TalkingCatException {
-        String[] commandParts = fullCommand.split(" ", 2);
-        String commandType = commandParts[0].toLowerCase(); // Consider case-insensitivity
-        String commandArgs = commandParts.length > 1 ? commandParts[1] : "";
-
-        switch (commandType) {
-            case "todo":
-                return createAddTodoCommand(commandArgs);
-            case "deadline":
-                return createAddDeadlineCommand(commandArgs);
-            case "event":
-                return createAddEventCommand(commandArgs);
-            case "list":
-                return new ListCommand();
-            case "mark":
-                return createMarkCommand(commandArgs);
-            case "unmark":
-                return createUnmarkCommand(commandArgs);
-            case "delete":
-                return createDeleteCommand(commandArgs);
-            case "find":
-                return createFindCommand(commandArgs);
-            case "bye":
-                return new ExitCommand();
-            default:
-                throw new TalkingCatException("Unknown command");
+    public String formatEventsOn(List<Task> tasks, LocalDate date) {
+        String day = DATE_FORMATTER.format(date);
+        if (tasks.isEmpty()) {
+            return "There are no events on " + day + ".";
+        }
+        StringBuilder response = new StringBuilder("Here are the events on ").append(day).append(":\n");
+        for (int i = 0; i < tasks.size(); i++) {
+            appendTask(response, i + 1, tasks.get(i));
         }
+        return response.toString();
     }
 
     /**
-     * Creates an AddTodoCommand with the given argument.
+     * Formats the pairs of overlapping events.
      *
-     * @param args The argument for the todo command, which is the description of the task.
-     * @return An instance of AddTodoCommand.
-     * @throws TalkingCatException If the description is empty.
+     * @param conflicts Each event mapped to the later-starting events that overlap it.
+     * @return A string representation of the overlapping events.
      */
-    private static Command createAddTodoCommand(String args) throws TalkingCatException {
-        if (args.isEmpty()) {
-            throw new TalkingCatException("The description of a todo cannot be empty.");
+    public String formatConflicts(Map<Event, List<Event>> conflicts) {
+        if (conflicts.isEmpty()) {
+            return "None of your events overlap.";
+        }
+        StringBuilder response = new StringBuilder("These events overlap:\n");
+        int number = 1;
+        for (Map.Entry<Event, List<Event>> entry : conflicts.entrySet()) {
+            for (Event other : entry.getValue()) {
+                appendTask(response, number++, entry.getKey());
+                response.append("   and ").append(other).append(" #").append(other.getId()).append("\n");
+            }
         }
-        return new AddTodoCommand(args);
+        return response.toString();
     }
 
-    private static Command createAddDeadlineCommand(String args) throws TalkingCatException {
-        return parseAddDeadlineCommand(args);
+    /**
+     * Formats a warning that a newly added event overlaps other events.
+     *
+     * @param clashes The events that overlap the new event.
+     * @return The warning, or an empty string if there are no clashes.
+     */
+    public String formatClashWarning(List<Task> clashes) {
+        if (clashes.isEmpty()) {
+            return "";
+        }
+        StringBuilder response = new StringBuilder("Warning: this event overlaps:\n");
+        for (int i = 0; i < clashes.size(); i++) {
+            appendTask(response, i + 1, clashes.get(i));
+        }
+        return response.toString();
     }
 
-    private static Command createAddEventCommand(String args) throws TalkingCatException {
-        return parseAddEventCommand(args);
+    /**
+     * Appends one numbered line for a task, ending with the task's permanent ID.
+     *
+     * @param sb The builder to append to.
+     * @param number The number shown in front of the task.
+     * @param task The task to append.
+     */
+    private static void appendTask(StringBuilder sb, int number, Task task) {
+        sb.append(number).append(".").append(task).append(" #").append(task.getId()).append("\n");
     }
 
-    private static Command createMarkCommand(String args) throws TalkingCatException {
-        int index = parseIndex(args);
-        return new MarkCommand(index);
+    private static void appendTask(StringBuilder sb, int number, TaskSnapshot snapshot, int index) {
+        sb.append(number).append(".").append(snapshot.getDisplay(index))
+                .append(" #").append(snapshot.get(index).getId()).append("\n");
     }
+}
+
+
+/**
+ * Handles storage operations for talkingcat application, including loading from and saving tasks to a file.
+ * In journaled mode, mutations do not rewrite the whole list: added tasks are appended to the data file,
+ * marking and unmarking patch the status of a single record in place, and deletions are appended to a journal
+ * file next to the data file. The journal is folded back into the data file once it grows too large.
+ */
+class Storage {
+    private static final String JOURNAL_SUFFIX = ".journal";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String OLD_SUFFIX = ".old";
+    private static final String QUARANTINE_SUFFIX = ".corrupt";
+    private static final long DEFAULT_COMPACTION_THRESHOLD = 64 * 1024;
+    private static final int MAX_JOURNALED_DELETES = 32;
+    private static final int MAX_JOURNALED_BATCH = 4096;
+    private static final int CHECKSUM_FIELD_LENGTH = 3 + RecordChecksum.LENGTH;
+    private static final int TEXT_STATUS_OFFSET = 4;
 
-    private static Command createUnmarkCommand(String args) throws TalkingCatException {
-        int index = parseIndex(args);
-        return new UnmarkCommand(index);
+    private String filePath;
+    private String journalPath;
+    private boolean isJournaled;
+    private long compactionThreshold;
+    private long journalSize;
+    private BulkLoader bulkLoader = new BulkLoader();
+    private LoadStats lastLoadStats;
+    private StorageFormat format = StorageFormat.TEXT;
+    private WriteBehindScheduler writeBehind;
+    private final Object writeLock = new Object();
+    private RecordIndex recordIndex = new RecordIndex();
+    private volatile PrintStream messages = System.out;
+
+    /**
+     * Creates a new Storage instance that rewrites the whole file on every save.
+     *
+     * @param filePath The path of the file where tasks are stored.
+     */
+    public Storage(String filePath) {
+        this(filePath, false);
     }
 
-    private static Command createDeleteCommand(String args) throws TalkingCatException {
-        int index = parseIndex(args);
-        return new DeleteCommand(index);
+    /**
+     * Creates a new Storage instance with the default compaction threshold.
+     *
+     * @param filePath The path of the file where tasks are stored.
+     * @param isJournaled Whether mutations are appended to a journal instead of rewriting the file.
+     */
+    public Storage(String filePath, boolean isJournaled) {
+        this(filePath, isJournaled, DEFAULT_COMPACTION_THRESHOLD);
     }
 
-    private static Command createFindCommand(String args) throws TalkingCatException {
-        if (args.isEmpty()) {
-            throw new TalkingCatException("The keyword for find cannot be empty.");
-        }
-        return new FindCommand(args);
+    /**
+     * Creates a new Storage instance.
+     *
+     * @param filePath The path of the file where tasks are stored.
+     * @param isJournaled Whether mutations are appended to a journal instead of rewriting the file.
+     * @param compactionThreshold The journal size in bytes after which it is folded into the data file.
+     */
+    public Storage(String filePath, boolean isJournaled, long compactionThreshold) {
+        this.filePath = filePath;
+        this.journalPath = filePath + JOURNAL_SUFFIX;
+        this.isJournaled = isJournaled;
+        this.compactionThreshold = compactionThreshold;
+        this.journalSize = new File(journalPath).length();
+        ensureFileExists();
     }
 
     /**
-     * Parses an index from the command arguments.
+     * Sets where notices about quarantined records and failed writes are printed. Headless modes print
+     * them to standard error, so that they do not get ahead of replies still buffered for standard output.
      *
-     * @param args The command arguments containing the index.
-     * @return The parsed index.
-     * @throws TalkingCatException If the index is not a valid integer.
+     * @param messages The stream to print notices to.
      */
-    private static int parseIndex(String args) throws TalkingCatException {
+    public void setMessageStream(PrintStream messages) {
+        this.messages = messages;
+    }
+
+    /**
+     * Ensures that the storage file exists. If it does not, the method attempts to create it.
+     */
+    private void ensureFileExists() {
         try {
-            return Integer.parseInt(args) - 1;
-        } catch (NumberFormatException e) {
-            throw new TalkingCatException("Invalid task number format.");
+            File file = new File(filePath);
+            File parentDirectory = file.getParentFile();
+            if (parentDirectory != null && !parentDirectory.exists()) {
+                parentDirectory.mkdirs(); // Create the directory if it doesn't exist
+            }
+            if (!file.exists()) {
+                file.createNewFile(); // Create the file if it doesn't exist
+            }
+        } catch (IOException e) {
+            messages.println("An error occurred while ensuring the data file exists: " + e.getMessage());
         }
     }
 
-    private static Command parseAddDeadlineCommand(String commandArgs) throws TalkingCatException {
-        String[] parts = commandArgs.split("/by", 2);
-        if (parts.length < 2 || parts[0].trim().isEmpty() || parts[1].trim().isEmpty()) {
-            throw new TalkingCatException("Invalid deadline command format.");
+    /**
+     * Loads tasks from the storage file, then replays any journaled mutations on top of them.
+     * The format of the file is detected from its header, and later saves keep that format.
+     * Records that are corrupt or fail their checksum are moved to a quarantine file instead of being loaded.
+     *
+     * @return A list of tasks loaded from the file.
+     * @throws TalkingCatException If the file cannot be read.
+     */
+    public List<Task> load() throws TalkingCatException {
+        File file = new File(filePath);
+        if (!file.exists()) {
+            throw new TalkingCatException("File not found");
         }
-        String description = parts[0].trim();
-        String by = parts[1].trim();
+
         try {
-            LocalDateTime byDate = LocalDateTime.parse(by, dateTimeFormatter);
-            return new AddDeadlineCommand(description, byDate);
-        } catch (DateTimeParseException e) {
-            throw new TalkingCatException("Invalid date format. Please use yyyy-MM-dd HHmm format.");
+            recoverInterruptedSave();
+            long startTime = System.nanoTime();
+            List<String> corruptRecords = new ArrayList<>();
+            RecordIndex index = new RecordIndex();
+            format = BinarySnapshot.isBinary(file.toPath()) ? StorageFormat.BINARY : StorageFormat.TEXT;
+            List<Task> tasks;
+            if (format == StorageFormat.BINARY) {
+                tasks = BinarySnapshot.read(file.toPath(), corruptRecords, index);
+            } else if (file.length() <= BulkLoader.MAX_MAPPED_SIZE) {
+                tasks = bulkLoader.load(file.toPath(), corruptRecords, index);
+            } else {
+                tasks = loadSequentially(corruptRecords);
+                for (int i = 0; i < tasks.size(); i++) {
+                    index.add(-1, 0, false);
+                }
+            }
+            // Corrupt records are kept as null placeholders until the journal has been replayed,
+            // so that the positions in journal entries still line up with the records they refer to.
+            lastLoadStats = new LoadStats(tasks.size() - corruptRecords.size(), file.length(),
+                    System.nanoTime() - startTime);
+            replayJournal(Paths.get(journalPath), tasks, index, corruptRecords);
+            recordIndex = new RecordIndex();
+            List<Task> loaded = new ArrayList<>(tasks.size());
+            for (int i = 0; i < tasks.size(); i++) {
+                if (tasks.get(i) != null) {
+                    loaded.add(tasks.get(i));
+                    recordIndex.add(index.getStart(i), index.getBodyLength(i), index.hasChecksum(i));
+                }
+            }
+            tasks = loaded;
+            if (!corruptRecords.isEmpty()) {
+                quarantine(corruptRecords);
+            }
+            // Records written before tasks had IDs get theirs now, and are saved straight away so they keep them.
+            if (TaskList.assignMissingIds(tasks) || !corruptRecords.isEmpty()) {
+                save(new TaskList(tasks));
+            }
+            return tasks;
+        } catch (IOException e) {
+            throw new TalkingCatException("Error reading from file: " + e.getMessage());
         }
     }
 
-    private static Command parseAddEventCommand(String commandArgs) throws TalkingCatException {
-        String[] parts = commandArgs.split("/from", 2);
-        if (parts.length < 2) {
-            throw new TalkingCatException("Invalid event command format. Missing '/from'.");
+    /**
+     * Starts loading tasks on a background thread and returns as soon as the first page is available.
+     * The first page is read straight from the head of the data file, and is only read when there is
+     * no journal to replay, since journal entries may change which tasks come first.
+     *
+     * @param firstPageSize The number of tasks to read before returning.
+     * @return A task list holding the first page, which switches to the whole list once it has loaded.
+     */
+    public TaskList loadProgressively(int firstPageSize) {
+        List<Task> firstPage;
+        try {
+            firstPage = readFirstPage(firstPageSize);
+        } catch (IOException e) {
+            firstPage = new ArrayList<>();
         }
-        String description = parts[0].trim();
+        CompletableFuture<List<Task>> remaining = new CompletableFuture<>();
+        Thread loader = new Thread(() -> {
+            try {
+                remaining.complete(load());
+                if (LoadStats.IS_REPORTED) {
+                    messages.println("Finished loading: " + lastLoadStats);
+                }
+            } catch (TalkingCatException | RuntimeException e) {
+                messages.println("An error occurred while loading tasks: " + e.getMessage());
+                remaining.complete(new ArrayList<>());
+            }
+        }, "storage-loader");
+        loader.setDaemon(true);
+        loader.start();
+        return new TaskList(firstPage, remaining);
+    }
 
-        String[] timeParts = parts[1].trim().split("/to", 2);
-        if (timeParts.length < 2) {
-            throw new TalkingCatException("Invalid event command format. Missing '/to'.");
+    /**
+     * Reads up to the given number of tasks from the head of the data file, skipping corrupt records.
+     *
+     * @param firstPageSize The maximum number of tasks to read.
+     * @return The first tasks in the data file, or an empty list if there is a journal or an interrupted save.
+     * @throws IOException If the data file cannot be read.
+     */
+    private List<Task> readFirstPage(int firstPageSize) throws IOException {
+        Path data = Paths.get(filePath);
+        if (new File(journalPath).length() > 0 || Files.exists(Paths.get(journalPath + OLD_SUFFIX))
+                || !Files.exists(data)) {
+            return new ArrayList<>();
         }
-        String from = timeParts[0].trim();
-        String to = timeParts[1].trim();
-
-        try {
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM dd yyyy, HH:mm");
-            LocalDateTime startDateTime = LocalDateTime.parse(from, formatter);
-            LocalDateTime endDateTime = LocalDateTime.parse(to, formatter);
-            return new AddEventCommand(description, startDateTime, endDateTime);
-        } catch (DateTimeParseException e) {
-            throw new TalkingCatException("Invalid date and time format. Please use 'MMM dd yyyy, HH:mm' format.");
+        List<Task> tasks;
+        if (BinarySnapshot.isBinary(data)) {
+            tasks = BinarySnapshot.read(data, new ArrayList<>(), new RecordIndex(), firstPageSize);
+            tasks.removeIf(java.util.Objects::isNull);
+            return tasks;
         }
+        tasks = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(data)) {
+            String line;
+            while (tasks.size() < firstPageSize && (line = reader.readLine()) != null) {
+                Task task = line.isEmpty() ? null : parseLineToTask(line);
+                if (task != null) {
+                    tasks.add(task);
+                }
+            }
+        }
+        return tasks;
     }
-}
 
+    /**
+     * Loads tasks from the storage file one line at a time on the calling thread.
+     * Used for files too large to be memory-mapped in one piece.
+     *
+     * @param corruptRecords The list that lines which cannot be loaded are added to.
+     * @return A list of tasks loaded from the file, with null in place of each line that cannot be loaded.
+     * @throws IOException If the file cannot be read.
+     */
+    List<Task> loadSequentially(List<String> corruptRecords) throws IOException {
+        List<Task> tasks = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(filePath))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                Task task = parseLineToTask(line);
+                tasks.add(task);
+                if (task == null) {
+                    corruptRecords.add(line);
+                }
+            }
+        }
+        return tasks;
+    }
 
-/**
- * Represents a list of tasks in the talkingcat application.
- * Provides functionality to add, remove, and query tasks.
- */
-class TaskList {
-    private List<Task> tasks;
+    /**
+     * Finishes or rolls back a save that was interrupted by a crash.
+     * A save writes the new data file to a temporary file, moves the journal aside, and then renames the
+     * temporary file over the data file. If the moved-aside journal is still there, the rename either
+     * happened (no temporary file left, so the journal is already folded in) or did not (the old data file
+     * is intact and the journal still applies to it, so it is moved back).
+     *
+     * @throws IOException If the leftover files cannot be cleaned up.
+     */
+    private void recoverInterruptedSave() throws IOException {
+        Path temp = Paths.get(filePath + TEMP_SUFFIX);
+        Path oldJournal = Paths.get(journalPath + OLD_SUFFIX);
+        if (Files.exists(oldJournal)) {
+            if (Files.exists(temp)) {
+                Files.move(oldJournal, Paths.get(journalPath), StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                Files.delete(oldJournal);
+            }
+        }
+        Files.deleteIfExists(temp);
+        journalSize = new File(journalPath).length();
+    }
 
     /**
-     * Creates a TaskList with the specified list of tasks.
-     * @param tasks The initial list of tasks.
+     * Appends records that could not be loaded to the quarantine file next to the data file.
+     * The data file is rewritten without them afterwards, so each record is quarantined once.
+     *
+     * @param corruptRecords The records that could not be loaded.
      */
-    public TaskList(List<Task> tasks) {
-        assert tasks != null : "Task list cannot be null";
-        this.tasks = tasks;
+    private void quarantine(List<String> corruptRecords) {
+        if (corruptRecords.isEmpty()) {
+            return;
+        }
+        String quarantinePath = filePath + QUARANTINE_SUFFIX;
+        try (Writer writer = new FileWriter(quarantinePath, StandardCharsets.UTF_8, true)) {
+            for (String record : corruptRecords) {
+                writer.write(record + System.lineSeparator());
+            }
+            messages.println("Quarantined " + corruptRecords.size() + " corrupt records to " + quarantinePath);
+        } catch (IOException e) {
+            messages.println("Skipped " + corruptRecords.size() + " corrupt records, and could not quarantine them: "
+                    + e.getMessage());
+        }
     }
 
     /**
-     * Creates an empty TaskList.
+     * Returns the statistics of the most recent load of the data file.
+     *
+     * @return The load statistics, or null if nothing has been loaded yet.
      */
-    public TaskList() {
-        this(new ArrayList<>());
+    public LoadStats getLastLoadStats() {
+        return lastLoadStats;
     }
 
     /**
-     * Adds a task to the list.
-     * @param task The task to be added.
+     * Applies every entry of a journal file, in order, to the tasks loaded from the data file.
+     *
+     * @param journal The journal file to replay.
+     * @param tasks The tasks loaded from the data file.
+     * @param index The location of each task's record in the data file, kept in step with the tasks.
+     * @param corruptRecords The list that entries which cannot be applied are added to.
+     * @throws IOException If the journal exists but cannot be read.
      */
-    public void addTask(Task task) {
-        int initialSize = tasks.size();
-        tasks.add(task);
-        assert tasks.size() == initialSize + 1 : "Task list size should increase by 1";
+    private void replayJournal(Path journal, List<Task> tasks, RecordIndex index, List<String> corruptRecords)
+            throws IOException {
+        if (!Files.exists(journal)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(journal)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!applyJournalEntry(tasks, index, line)) {
+                    corruptRecords.add(line);
+                }
+            }
+        }
     }
 
     /**
-     * Removes a task from the list by index.
-     * @param index The index of the task to be removed.
-     * @return The removed Task.
+     * Applies a single journal entry to the list of tasks.
+     * Entries that cannot be applied, such as a line cut short by a crash, are skipped.
+     *
+     * @param tasks The tasks to apply the entry to.
+     * @param index The location of each task's record in the data file, kept in step with the tasks.
+     * @param line The journal line, ending with the checksum of the entry.
+     * @return true if the entry was applied.
      */
-    public Task removeTask(int index) {
-        return tasks.remove(index);
+    private boolean applyJournalEntry(List<Task> tasks, RecordIndex index, String line) {
+        String entry = RecordChecksum.strip(line);
+        if (entry == null) {
+            return false;
+        }
+        String[] parts = entry.split(" \\| ", 2);
+        try {
+            switch (parts[0]) {
+                case "A":
+                    Task task = parseLineToTask(parts[1]);
+                    if (task == null) {
+                        return false;
+                    }
+                    tasks.add(task);
+                    index.add(-1, 0, false);
+                    return true;
+                case "D":
+                    int deleted = Integer.parseInt(parts[1]);
+                    tasks.remove(deleted);
+                    index.remove(deleted);
+                    return true;
+                case "M":
+                    Task marked = tasks.get(Integer.parseInt(parts[1]));
+                    if (marked != null) marked.markAsDone();
+                    return true;
+                case "U":
+                    Task unmarked = tasks.get(Integer.parseInt(parts[1]));
+                    if (unmarked != null) unmarked.markAsNotDone();
+                    return true;
+                default:
+                    return false;
+            }
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            return false;
+        }
     }
 
     /**
-     * Retrieves a task from the list by index.
-     * @param index The index of the task to retrieve.
-     * @return The Task at the specified index.
+     * Parses a record in the storage text format, such as a line of another task list's data file.
+     *
+     * @param line The record, with or without its checksum and ID.
+     * @return The task, or null if the record is invalid or fails its checksum.
      */
-    public Task getTask(int index) {
-        assert index >= 0 && index < tasks.size() : "Task index is out of bounds";
-        return tasks.get(index);
+    Task parseRecord(String line) {
+        return parseLineToTask(line);
     }
 
     /**
-     * Returns the number of tasks in the list.
-     * @return The size of the task list.
+     * Parses a single line from the storage file into a Task object.
+     * Lines written before records carried checksums are accepted without one.
+     * The type and status are read from the left, and the checksum, ID and timestamps from the right,
+     * so that whatever is left in between is the description, even if it contains the field separator.
+     *
+     * @param line The line to be parsed.
+     * @return The Task object created from the line, or null if the task is invalid or fails its checksum.
      */
-    public int getSize() {
-        return tasks.size();
+    private Task parseLineToTask(String line) {
+        try {
+            int typeEnd = line.indexOf(" | ");
+            int statusEnd = line.indexOf(" | ", typeEnd + 3);
+            if (typeEnd < 0 || statusEnd < 0) {
+                return null;
+            }
+            String type = line.substring(0, typeEnd);
+            int fieldCount = RecordChecksum.fieldCount(type);
+            if (fieldCount < 0) {
+                return null;
+            }
+            boolean isDone = line.substring(typeEnd + 3, statusEnd).equals("1");
+            int descriptionStart = statusEnd + 3;
+            int end = line.length();
+            int fieldStart = trailingFieldStart(line, descriptionStart, end);
+            if (fieldStart >= 0 && RecordChecksum.isChecksum(line.substring(fieldStart, end))) {
+                if (RecordChecksum.strip(line) == null) {
+                    return null;
+                }
+                end = fieldStart - 3;
+                fieldStart = trailingFieldStart(line, descriptionStart, end);
+            }
+            int id = -1;
+            if (fieldStart >= 0 && isIdField(line, fieldStart, end)) {
+                id = Integer.parseInt(line.substring(fieldStart + 1, end));
+                end = fieldStart - 3;
+            }
+            String[] timestamps = new String[fieldCount - 3];
+            for (int i = timestamps.length - 1; i >= 0; i--) {
+                fieldStart = trailingFieldStart(line, descriptionStart, end);
+                if (fieldStart < 0) {
+                    return null;
+                }
+                timestamps[i] = line.substring(fieldStart, end);
+                end = fieldStart - 3;
+            }
+            Task task = createTask(type, line.substring(descriptionStart, end), timestamps);
+            if (isDone) task.markAsDone();
+            if (id >= 0) {
+                task.setId(id);
+            }
+            return task;
+        } catch (TalkingCatException | DateTimeParseException | IndexOutOfBoundsException
+                | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Finds the start of the last field before the given end, without reaching into the description.
+     *
+     * @return The start of the field, or -1 if there is no separator between the description and the end.
+     */
+    private static int trailingFieldStart(String line, int descriptionStart, int end) {
+        int separator = line.lastIndexOf(" | ", end - 3);
+        return separator >= descriptionStart ? separator + 3 : -1;
+    }
+
+    /**
+     * Checks whether a field is an ID: a '#' followed by up to nine digits.
+     */
+    private static boolean isIdField(String line, int fieldStart, int end) {
+        if (line.charAt(fieldStart) != '#' || end - fieldStart < 2 || end - fieldStart > 10) {
+            return false;
+        }
+        for (int i = fieldStart + 1; i < end; i++) {
+            if (line.charAt(i) < '0' || line.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates a Task object based on the type and description provided.
+     *
+     * @param type The type of the task (e.g., "T" for todo).
+     * @param description The description of the task.
+     * @param timestamps The stored timestamps of the task, in field order.
+     * @return The created Task object.
+     * @throws TalkingCatException If the task type is unknown or format is invalid.
+     */
+    private Task createTask(String type, String description, String[] timestamps) throws TalkingCatException {
+        DateTimeCodec.Layout layout = DateTimeCodec.Layout.STORAGE;
+        switch (type) {
+            case "T":
+                return new Todo(description);
+            case "D":
+                if (timestamps.length < 1) throw new TalkingCatException("Invalid deadline format in file.");
+                LocalDateTime byDate = DateTimeCodec.parse(timestamps[0], layout);
+                return new Deadline(description, byDate);
+            case "E":
+                if (timestamps.length < 2) throw new TalkingCatException("Invalid event format in file.");
+                LocalDateTime from = DateTimeCodec.parse(timestamps[0], layout);
+                LocalDateTime to = DateTimeCodec.parse(timestamps[1], layout);
+                return new Event(description, from, to);
+            default:
+                throw new TalkingCatException("Unknown task type: " + type);
+        }
+    }
+
+    /**
+     * Saves the current list of tasks to the storage file.
+     * The tasks are written to a temporary file that is forced to disk and then renamed over the old file,
+     * so a crash leaves either the old or the new file in place. Since the file then holds every task,
+     * the journal is cleared.
+     *
+     * @param tasks The list of tasks to be saved.
+     */
+    public void save(TaskList tasks) {
+        if (writeBehind != null) {
+            writeBehind.discardPending();
+        }
+        TaskSnapshot snapshot = tasks.publishSnapshot();
+        synchronized (writeLock) {
+            try {
+                writeSnapshot(snapshot);
+            } catch (IOException e) {
+                messages.println("An error occurred while saving tasks to file: " + e.getMessage());
+                return;
+            }
+            clearJournal();
+        }
+    }
+
+    /**
+     * Writes the tasks to the storage file in the current format.
+     *
+     * @param tasks The snapshot of the list to be written.
+     * @throws IOException If the file cannot be written.
+     */
+    private void writeSnapshot(TaskSnapshot tasks) throws IOException {
+        Path target = Paths.get(filePath);
+        Path temp = Paths.get(filePath + TEMP_SUFFIX);
+        RecordIndex index = new RecordIndex();
+        try (FileOutputStream fileOut = new FileOutputStream(temp.toFile())) {
+            OutputStream out = new BufferedOutputStream(fileOut);
+            if (format == StorageFormat.BINARY) {
+                BinarySnapshot.write(out, tasks, index);
+            } else {
+                writeText(out, tasks, index);
+            }
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        Path journal = Paths.get(journalPath);
+        if (Files.exists(journal)) {
+            Files.move(journal, Paths.get(journalPath + OLD_SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        Files.deleteIfExists(Paths.get(journalPath + OLD_SUFFIX));
+        recordIndex = index;
+    }
+
+    /**
+     * Writes the tasks in the pipe-delimited text format.
+     *
+     * @param out The stream to write to.
+     * @param tasks The snapshot of the list to be written.
+     * @param index The index that the location of each written record is added to.
+     * @throws IOException If the stream cannot be written.
+     */
+    private void writeText(OutputStream out, TaskSnapshot tasks, RecordIndex index) throws IOException {
+        byte[] lineSeparator = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+        long offset = 0;
+        for (int i = 0; i < tasks.size(); i++) {
+            byte[] record = taskToFileString(tasks.get(i), tasks.isDone(i)).getBytes(StandardCharsets.UTF_8);
+            out.write(record);
+            out.write(lineSeparator);
+            index.add(offset, record.length - CHECKSUM_FIELD_LENGTH, true);
+            offset += record.length + lineSeparator.length;
+        }
+    }
+
+    /**
+     * Rewrites the storage file in the given format. Later saves keep using that format.
+     *
+     * @param tasks The current list of tasks.
+     * @param newFormat The format to convert the file to.
+     */
+    public void convert(TaskList tasks, StorageFormat newFormat) {
+        format = newFormat;
+        save(tasks);
+    }
+
+    /**
+     * Returns the format the storage file is currently saved in.
+     *
+     * @return The current storage format.
+     */
+    public StorageFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Records that a task has been appended to the list.
+     *
+     * @param tasks The task list after the task was added.
+     * @param task The task that was added.
+     */
+    public void recordAdd(TaskList tasks, Task task) {
+        record("A | " + taskToFileString(task), tasks);
+    }
+
+    /**
+     * Records that several tasks have been appended to the list, persisting them once.
+     *
+     * @param tasks The task list after the tasks were added.
+     * @param addedTasks The tasks that were added, in order.
+     */
+    public void recordAdds(TaskList tasks, List<Task> addedTasks) {
+        List<String> entries = new ArrayList<>(addedTasks.size());
+        for (Task task : addedTasks) {
+            entries.add("A | " + taskToFileString(task));
+        }
+        recordBatch(entries, tasks);
+    }
+
+    /**
+     * Records edits replayed by undo or redo, persisting them once. Tasks put back in the middle of the list
+     * cannot be journaled, so edits that include one are persisted by saving the whole list.
+     *
+     * @param tasks The task list after the edits.
+     * @param edits The edits, in the order they were applied.
+     */
+    public void recordEdits(TaskList tasks, List<TaskHistory.Edit> edits) {
+        List<String> entries = new ArrayList<>(edits.size());
+        for (TaskHistory.Edit edit : edits) {
+            switch (edit.getKind()) {
+                case ADD:
+                    if (!edit.isAppend()) {
+                        save(tasks);
+                        return;
+                    }
+                    entries.add("A | " + taskToFileString(edit.getTask()));
+                    break;
+                case REMOVE:
+                    entries.add("D | " + edit.getPosition());
+                    break;
+                default:
+                    entries.add((edit.isDone() ? "M | " : "U | ") + edit.getPosition());
+            }
+        }
+        recordBatch(entries, tasks);
+    }
+
+    /**
+     * Records that the task at the given index has been deleted.
+     *
+     * @param tasks The task list after the task was deleted.
+     * @param index The index the task had before it was deleted.
+     */
+    public void recordDelete(TaskList tasks, int index) {
+        record("D | " + index, tasks);
+    }
+
+    /**
+     * Records that the task at the given index has been marked as done.
+     *
+     * @param tasks The task list containing the marked task.
+     * @param index The index of the marked task.
+     */
+    public void recordMark(TaskList tasks, int index) {
+        record("M | " + index, tasks);
+    }
+
+    /**
+     * Records that the task at the given index has been marked as not done.
+     *
+     * @param tasks The task list containing the unmarked task.
+     * @param index The index of the unmarked task.
+     */
+    public void recordUnmark(TaskList tasks, int index) {
+        record("U | " + index, tasks);
+    }
+
+    /**
+     * Records several mutations made by one bulk command, persisting them once.
+     * In journaled mode the entries are applied together, with one journal write and the data file opened once.
+     * A batch with many deletions is saved as one compaction instead, since each journaled deletion also
+     * shifts the record index, and so is a batch so large that one sequential rewrite beats its positional writes.
+     *
+     * @param entries The journal entries describing the mutations, in the order they were made.
+     * @param tasks The task list after the mutations.
+     */
+    public void recordBatch(List<String> entries, TaskList tasks) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        if (isJournaled && writeBehind == null && (entries.size() > MAX_JOURNALED_BATCH
+                || entries.stream().filter(entry -> entry.startsWith("D")).count() > MAX_JOURNALED_DELETES)) {
+            save(tasks);
+            return;
+        }
+        record(entries, tasks);
+    }
+
+    private void record(String entry, TaskList tasks) {
+        record(List.of(entry), tasks);
+    }
+
+    /**
+     * Persists mutations. In journaled mode the entries are applied to the data file or the journal,
+     * and the journal is compacted into the data file once it passes the threshold.
+     * Otherwise the whole list is saved.
+     *
+     * @param entries The journal entries describing the mutations.
+     * @param tasks The task list after the mutations.
+     */
+    private void record(List<String> entries, TaskList tasks) {
+        if (writeBehind != null) {
+            writeBehind.record(entries, tasks);
+            return;
+        }
+        if (!isJournaled) {
+            save(tasks);
+            return;
+        }
+        try {
+            synchronized (writeLock) {
+                journalSize += applyEntries(entries);
+            }
+        } catch (IOException e) {
+            messages.println("An error occurred while writing to the journal: " + e.getMessage());
+            save(tasks);
+            return;
+        }
+        if (journalSize >= compactionThreshold) {
+            compact(tasks);
+        }
+    }
+
+    /**
+     * Applies journal entries, in order, to the files on disk. Added tasks are appended to the data file,
+     * and status changes are patched into their record in place. Deletions, and status changes of tasks
+     * whose record is not in the data file, are appended to the journal.
+     *
+     * @param entries The journal entries to apply.
+     * @return The number of bytes appended to the journal.
+     * @throws IOException If the data file or the journal cannot be written.
+     */
+    private long applyEntries(List<String> entries) throws IOException {
+        List<String> journalEntries = new ArrayList<>();
+        FileChannel channel = null;
+        try {
+            for (String entry : entries) {
+                String argument = entry.substring(4);
+                if (entry.charAt(0) != 'D' && channel == null) {
+                    channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ, StandardOpenOption.WRITE);
+                }
+                switch (entry.charAt(0)) {
+                    case 'A':
+                        appendRecord(channel, argument);
+                        break;
+                    case 'M':
+                    case 'U':
+                        if (!patchStatus(channel, Integer.parseInt(argument), entry.charAt(0) == 'M')) {
+                            journalEntries.add(entry);
+                        }
+                        break;
+                    default:
+                        recordIndex.remove(Integer.parseInt(argument));
+                        journalEntries.add(entry);
+                }
+            }
+        } finally {
+            if (channel != null) {
+                channel.close();
+            }
+        }
+        if (journalEntries.isEmpty()) {
+            return 0;
+        }
+        appendToJournal(journalEntries);
+        long written = 0;
+        for (String entry : journalEntries) {
+            written += journalLineSize(entry);
+        }
+        return written;
+    }
+
+    /**
+     * Appends a record to the end of the data file.
+     *
+     * @param channel The data file, open for reading and writing.
+     * @param record The record in the text format, ending with its checksum.
+     * @throws IOException If the data file cannot be written.
+     */
+    private void appendRecord(FileChannel channel, String record) throws IOException {
+        long start = channel.size();
+        if (format == StorageFormat.BINARY) {
+            Task task = parseLineToTask(record);
+            if (task == null) {
+                throw new IOException("Cannot append invalid record: " + record);
+            }
+            byte[] bytes = BinarySnapshot.encodeRecord(task);
+            writeFully(channel, ByteBuffer.wrap(bytes), start);
+            BinarySnapshot.incrementCount(channel);
+            recordIndex.add(start, bytes.length - 4, true);
+        } else {
+            byte[] bytes = (record + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+            writeFully(channel, ByteBuffer.wrap(bytes), start);
+            recordIndex.add(start, bytes.length - System.lineSeparator().length() - CHECKSUM_FIELD_LENGTH, true);
+        }
+    }
+
+    /**
+     * Overwrites the done flag of a single record in the data file, together with the record's checksum.
+     *
+     * @param channel The data file, open for reading and writing.
+     * @param index The position of the task in the list.
+     * @param isDone The new status of the task.
+     * @return false if the task's record is not in the data file and so could not be patched.
+     * @throws IOException If the data file cannot be read or written.
+     */
+    private boolean patchStatus(FileChannel channel, int index, boolean isDone) throws IOException {
+        long start = recordIndex.getStart(index);
+        if (start < 0) {
+            return false;
+        }
+        int bodyLength = recordIndex.getBodyLength(index);
+        boolean hasChecksum = recordIndex.hasChecksum(index);
+        boolean isText = format == StorageFormat.TEXT;
+        int checksumLength = !hasChecksum ? 0 : isText ? CHECKSUM_FIELD_LENGTH : 4;
+        ByteBuffer record = ByteBuffer.allocate(bodyLength + checksumLength);
+        while (record.hasRemaining()) {
+            if (channel.read(record, start + record.position()) < 0) {
+                throw new IOException("Data file is shorter than its record index.");
+            }
+        }
+        int statusOffset = isText ? TEXT_STATUS_OFFSET : 4 + record.getInt(0) + 1;
+        record.put(statusOffset, isText ? (byte) (isDone ? '1' : '0') : (byte) (isDone ? 1 : 0));
+        if (hasChecksum) {
+            CRC32 crc = new CRC32();
+            crc.update(record.array(), 0, bodyLength);
+            if (isText) {
+                record.position(bodyLength + 3);
+                record.put(RecordChecksum.toHex(crc.getValue()).getBytes(StandardCharsets.US_ASCII));
+            } else {
+                record.putInt(bodyLength, (int) crc.getValue());
+            }
+        }
+        // The status and the checksum go out in one positional write, from the status byte onwards.
+        record.limit(bodyLength + checksumLength).position(statusOffset);
+        writeFully(channel, record, start + statusOffset);
+        return true;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Appends entries to the journal file in a single write.
+     *
+     * @param entries The journal entries to append.
+     * @throws IOException If the journal cannot be written.
+     */
+    private void appendToJournal(List<String> entries) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (String entry : entries) {
+            lines.append(RecordChecksum.append(entry)).append(System.lineSeparator());
+        }
+        try (Writer writer = new FileWriter(journalPath, StandardCharsets.UTF_8, true)) {
+            writer.write(lines.toString());
+        }
+    }
+
+    private static long journalLineSize(String entry) {
+        return RecordChecksum.append(entry).getBytes(StandardCharsets.UTF_8).length + System.lineSeparator().length();
+    }
+
+    /**
+     * Defers persistence to a background writer. Mutations then only mark the storage dirty, and the latest
+     * state is written once no mutation has arrived for the quiet period, or once the oldest unwritten
+     * mutation is older than the maximum delay. Pending writes are flushed when the JVM shuts down.
+     *
+     * @param quietMillis The time without mutations after which pending changes are written.
+     * @param maxDelayMillis The longest a mutation may wait before it is written.
+     */
+    public void enableWriteBehind(long quietMillis, long maxDelayMillis) {
+        if (writeBehind != null) {
+            return;
+        }
+        writeBehind = new WriteBehindScheduler(quietMillis, maxDelayMillis);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "talkingcat-storage-flush"));
+    }
+
+    /**
+     * Holds mutations back until {@link #flush()} is called, for callers that pick their own checkpoints.
+     * Nothing is written in the background. Pending writes are still flushed when the JVM shuts down.
+     */
+    public void deferWrites() {
+        enableWriteBehind(-1, -1);
+    }
+
+    /**
+     * Writes any changes still held back by the write-behind scheduler.
+     */
+    public void flush() {
+        if (writeBehind != null) {
+            writeBehind.flush();
+        }
+    }
+
+    /**
+     * Describes how many logical saves the write-behind scheduler has absorbed per physical write.
+     *
+     * @return The write-behind statistics, or a note that write-behind is disabled.
+     */
+    public String getWriteBehindStats() {
+        return writeBehind == null ? "Write-behind is disabled." : writeBehind.toString();
+    }
+
+    /**
+     * Folds the journal back into a fresh copy of the data file.
+     *
+     * @param tasks The current list of tasks.
+     */
+    public void compact(TaskList tasks) {
+        save(tasks);
+    }
+
+    /**
+     * Migrates the data file offline: strips the date suffixes that older versions saved into deadline
+     * and event descriptions on every save, then rewrites the data file with the journal folded in.
+     *
+     * @return A report of the records repaired and the bytes reclaimed.
+     * @throws TalkingCatException If the data file cannot be read.
+     */
+    public CompactionReport migrate() throws TalkingCatException {
+        long bytesBefore = new File(filePath).length() + new File(journalPath).length();
+        List<Task> tasks = load();
+        int repaired = 0;
+        for (Task task : tasks) {
+            if (task.stripDisplaySuffixes() > 0) {
+                repaired++;
+            }
+        }
+        save(new TaskList(tasks));
+        long bytesAfter = new File(filePath).length() + new File(journalPath).length();
+        return new CompactionReport(filePath, tasks.size(), repaired, bytesBefore, bytesAfter);
+    }
+
+    /**
+     * Deletes the journal file, if any.
+     */
+    private void clearJournal() {
+        if (deleteJournal()) {
+            journalSize = 0;
+        }
+    }
+
+    /**
+     * Deletes the journal file without touching the journal size bookkeeping.
+     *
+     * @return true if there is no journal file left.
+     */
+    private boolean deleteJournal() {
+        File journal = new File(journalPath);
+        if (journal.exists() && !journal.delete()) {
+            messages.println("An error occurred while clearing the journal: " + journalPath);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Coalesces mutations and writes them on a background thread.
+     * Pending work is either a snapshot of the whole list followed by the journal entries recorded after it,
+     * or just journal entries. A snapshot supersedes every entry recorded before it, so those are dropped.
+     */
+    private class WriteBehindScheduler {
+        private ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "talkingcat-storage-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        private long quietNanos;
+        private long maxDelayNanos;
+
+        private TaskSnapshot pendingSnapshot;
+        private List<String> pendingEntries = new ArrayList<>();
+        private int pendingSaves;
+        private long firstDirtyTime;
+        private ScheduledFuture<?> scheduledFlush;
+
+        private long logicalSaves;
+        private long physicalWrites;
+        private int lastAbsorbed;
+
+        WriteBehindScheduler(long quietMillis, long maxDelayMillis) {
+            this.quietNanos = TimeUnit.MILLISECONDS.toNanos(quietMillis);
+            this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        }
+
+        /**
+         * Notes the mutations of one command and (re)schedules the background write,
+         * unless writes are deferred until the next flush.
+         *
+         * @param entries The journal entries describing the mutations.
+         * @param tasks The task list after the mutations.
+         */
+        synchronized void record(List<String> entries, TaskList tasks) {
+            if (isJournaled) {
+                pendingEntries.addAll(entries);
+                for (String entry : entries) {
+                    if (entry.startsWith("D")) {
+                        journalSize += journalLineSize(entry);
+                    }
+                }
+            }
+            if (!isJournaled || journalSize >= compactionThreshold) {
+                pendingSnapshot = tasks.publishSnapshot();
+                pendingEntries.clear();
+                journalSize = 0;
+            }
+            long now = System.nanoTime();
+            if (pendingSaves == 0) {
+                firstDirtyTime = now;
+            }
+            pendingSaves++;
+            if (quietNanos < 0) {
+                return;
+            }
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+            }
+            long delay = Math.min(quietNanos, firstDirtyTime + maxDelayNanos - now);
+            scheduledFlush = executor.schedule(this::flush, Math.max(0, delay), TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Drops pending work that a full synchronous save is about to supersede.
+         */
+        synchronized void discardPending() {
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+            }
+            logicalSaves += pendingSaves;
+            pendingSnapshot = null;
+            pendingEntries = new ArrayList<>();
+            pendingSaves = 0;
+        }
+
+        /**
+         * Writes all pending work. Safe to call from any thread; writes happen in the order they were recorded.
+         */
+        void flush() {
+            synchronized (writeLock) {
+                TaskSnapshot snapshot;
+                List<String> entries;
+                int saves;
+                synchronized (this) {
+                    if (pendingSaves == 0) {
+                        return;
+                    }
+                    snapshot = pendingSnapshot;
+                    entries = pendingEntries;
+                    saves = pendingSaves;
+                    pendingSnapshot = null;
+                    pendingEntries = new ArrayList<>();
+                    pendingSaves = 0;
+                }
+                try {
+                    if (snapshot != null) {
+                        writeSnapshot(snapshot);
+                        deleteJournal();
+                    }
+                    if (!entries.isEmpty()) {
+                        applyEntries(entries);
+                    }
+                } catch (IOException e) {
+                    messages.println("An error occurred while saving tasks to file: " + e.getMessage());
+                }
+                synchronized (this) {
+                    logicalSaves += saves;
+                    physicalWrites++;
+                    lastAbsorbed = saves;
+                }
+            }
+        }
+
+        @Override
+        public synchronized String toString() {
+            double average = physicalWrites == 0 ? 0 : (double) logicalSaves / physicalWrites;
+            return String.format("%d logical saves in %d physical writes (%.1f per write, last write absorbed %d)",
+                    logicalSaves, physicalWrites, average, lastAbsorbed);
+        }
+    }
+
+    /**
+     * Converts a Task object into a string representation suitable for storage, ending with its checksum.
+     * The result is cached on the task until the task changes.
+     *
+     * @param task The task to be converted.
+     * @return The string representation of the task.
+     */
+    private String taskToFileString(Task task) {
+        return taskToFileString(task, task.isDone);
+    }
+
+    /**
+     * Converts a Task object into a string representation suitable for storage, with the given status.
+     *
+     * @param task The task to be converted.
+     * @param isDone The status to store, as captured by a snapshot.
+     * @return The string representation of the task.
+     */
+    private String taskToFileString(Task task, boolean isDone) {
+        String record = task.getCachedRecord(isDone);
+        if (record == null) {
+            record = formatRecord(task, isDone);
+            task.cacheRecord(isDone, record);
+        }
+        return record;
+    }
+
+    private String formatRecord(Task task, boolean isDone) {
+        String type = task instanceof Todo ? "T" :
+                task instanceof Deadline ? "D" :
+                        task instanceof Event ? "E" : "";
+        String status = isDone ? "1" : "0";
+        String details = task.getRawDescription();
+        StringBuilder record = new StringBuilder(details.length() + 64)
+                .append(type).append(" | ").append(status).append(" | ").append(details);
+
+        if (task instanceof Deadline) {
+            Deadline deadline = (Deadline) task;
+            DateTimeCodec.append(record.append(" | "), deadline.getBy(), DateTimeCodec.Layout.STORAGE);
+        } else if (task instanceof Event) {
+            Event event = (Event) task;
+            DateTimeCodec.append(record.append(" | "), event.getFrom(), DateTimeCodec.Layout.STORAGE);
+            DateTimeCodec.append(record.append(" | "), event.getTo(), DateTimeCodec.Layout.STORAGE);
+        }
+
+        if (task.getId() > 0) {
+            record.append(" | #").append(task.getId());
+        }
+        return RecordChecksum.append(record.toString());
+    }
+}
+
+/**
+ * Loads a data file by memory-mapping it, splitting it into line-aligned chunks and parsing the chunks
+ * in parallel on a fork-join pool. The parsed tasks are merged back in file order.
+ */
+class BulkLoader {
+    static final long MAX_MAPPED_SIZE = Integer.MAX_VALUE;
+    private static final int DEFAULT_CHUNK_SIZE = 256 * 1024;
+    private static final int MAX_FIELDS = 7;
+    private static final int TYPE_FIELD = 0;
+    private static final int STATUS_FIELD = 1;
+    private static final int DESCRIPTION_FIELD = 2;
+    private static final int FIRST_TIMESTAMP_FIELD = 3;
+    private static final int ID_FIELD = 5;
+    private static final int CHECKSUM_FIELD = 6;
+    private static final DateTimeFormatter FILE_FORMATTER = Task.STORAGE_FORMATTER;
+
+    private ForkJoinPool pool;
+    private int chunkSize;
+
+    /**
+     * Creates a BulkLoader that parses on the common fork-join pool.
+     */
+    public BulkLoader() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a BulkLoader.
+     *
+     * @param pool The pool the chunks are parsed on.
+     * @param chunkSize The number of bytes below which a chunk is parsed without being split further.
+     */
+    public BulkLoader(ForkJoinPool pool, int chunkSize) {
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Loads every valid record of the given file. Invalid records are collected and skipped.
+     *
+     * @param path The data file to load.
+     * @param corruptRecords The list that lines which cannot be loaded are added to, in file order.
+     * @param index The index that the location of each record is added to, in file order.
+     * @return The tasks in the order they appear in the file, with null in place of each line that cannot be loaded.
+     * @throws IOException If the file cannot be read or is too large to be mapped.
+     */
+    public List<Task> load(Path path, List<String> corruptRecords, RecordIndex index) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > MAX_MAPPED_SIZE) {
+                throw new IOException("File is too large to be mapped: " + path);
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            ChunkResult result = pool.invoke(new ParseTask(buffer, 0, (int) size));
+            corruptRecords.addAll(result.invalidLines);
+            index.addAll(result.index);
+            return result.tasks;
+        }
+    }
+
+    /**
+     * Holds the tasks and invalid lines found in one chunk of the file.
+     */
+    private static class ChunkResult {
+        private ArrayList<Task> tasks = new ArrayList<>();
+        private List<String> invalidLines = new ArrayList<>();
+        private RecordIndex index = new RecordIndex();
+
+        private ChunkResult append(ChunkResult next) {
+            tasks.addAll(next.tasks);
+            invalidLines.addAll(next.invalidLines);
+            index.addAll(next.index);
+            return this;
+        }
+    }
+
+    /**
+     * Parses the lines in a range of the mapped file, splitting the range in two at a line boundary
+     * while it is larger than the chunk size.
+     */
+    private class ParseTask extends RecursiveTask<ChunkResult> {
+        private static final long serialVersionUID = 1L;
+
+        private final ByteBuffer buffer;
+        private final int start;
+        private final int end;
+
+        ParseTask(ByteBuffer buffer, int start, int end) {
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected ChunkResult compute() {
+            if (end - start > chunkSize) {
+                int middle = nextLineStart(start + (end - start) / 2);
+                if (middle < end) {
+                    ParseTask right = new ParseTask(buffer, middle, end);
+                    right.fork();
+                    ChunkResult left = new ParseTask(buffer, start, middle).compute();
+                    return left.append(right.join());
+                }
+            }
+            return parseRange();
+        }
+
+        /**
+         * Returns the offset just after the next line break at or after the given offset.
+         */
+        private int nextLineStart(int offset) {
+            while (offset < end && buffer.get(offset) != '\n') {
+                offset++;
+            }
+            return offset + 1;
+        }
+
+        private ChunkResult parseRange() {
+            ChunkResult result = new ChunkResult();
+            int[] bounds = new int[MAX_FIELDS * 2];
+            CRC32 crc = new CRC32();
+            int lineStart = start;
+            while (lineStart < end) {
+                int lineEnd = lineStart;
+                while (lineEnd < end && buffer.get(lineEnd) != '\n') {
+                    lineEnd++;
+                }
+                int contentEnd = lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+                if (contentEnd > lineStart) {
+                    Task task = parseRecord(lineStart, contentEnd, bounds, crc);
+                    result.tasks.add(task);
+                    if (task == null) {
+                        result.invalidLines.add(decode(lineStart, contentEnd));
+                        result.index.add(-1, 0, false);
+                    } else {
+                        indexRecord(result.index, lineStart, contentEnd, bounds);
+                    }
+                }
+                lineStart = lineEnd + 1;
+            }
+            return result;
+        }
+
+        /**
+         * Adds the location of a parsed record to the index. Records whose status is not a single byte
+         * right after the type cannot be patched in place, so they are indexed as not in the file.
+         */
+        private void indexRecord(RecordIndex index, int lineStart, int lineEnd, int[] bounds) {
+            if (bounds[STATUS_FIELD * 2] != lineStart + 4 || bounds[STATUS_FIELD * 2 + 1] != lineStart + 5) {
+                index.add(-1, 0, false);
+                return;
+            }
+            int checksumStart = bounds[CHECKSUM_FIELD * 2];
+            int bodyEnd = checksumStart >= 0 ? checksumStart - 3 : lineEnd;
+            index.add(lineStart, bodyEnd - lineStart, checksumStart >= 0);
+        }
+
+        /**
+         * Parses one record, scanning the " | " separated fields by offset instead of splitting the line.
+         *
+         * @return The parsed task, or null if the record is invalid or fails its checksum.
+         */
+        private Task parseRecord(int lineStart, int lineEnd, int[] bounds, CRC32 crc) {
+            if (scanRecord(lineStart, lineEnd, bounds) < 0) {
+                return null;
+            }
+            int checksumStart = bounds[CHECKSUM_FIELD * 2];
+            if (checksumStart >= 0) {
+                crc.reset();
+                crc.update(buffer.duplicate().position(lineStart).limit(checksumStart - 3));
+                if (crc.getValue() != parseChecksum(checksumStart)) {
+                    return null;
+                }
+            }
+            int statusStart = bounds[STATUS_FIELD * 2];
+            boolean isDone = bounds[STATUS_FIELD * 2 + 1] - statusStart == 1 && buffer.get(statusStart) == '1';
+            String description = decode(bounds[DESCRIPTION_FIELD * 2], bounds[DESCRIPTION_FIELD * 2 + 1]);
+            int timestamp = FIRST_TIMESTAMP_FIELD * 2;
+            Task task;
+            try {
+                switch (buffer.get(lineStart)) {
+                    case 'T':
+                        task = new Todo(description);
+                        break;
+                    case 'D':
+                        task = new Deadline(description, parseDateTime(bounds[timestamp], bounds[timestamp + 1]));
+                        break;
+                    case 'E':
+                        task = new Event(description, parseDateTime(bounds[timestamp], bounds[timestamp + 1]),
+                                parseDateTime(bounds[timestamp + 2], bounds[timestamp + 3]));
+                        break;
+                    default:
+                        return null;
+                }
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+            if (isDone) task.markAsDone();
+            int idStart = bounds[ID_FIELD * 2];
+            if (idStart >= 0) {
+                task.setId(digits(idStart + 1, bounds[ID_FIELD * 2 + 1] - idStart - 1));
+            }
+            return task;
+        }
+
+        /**
+         * Finds the fields of a record: the type and status from the left, then the checksum, ID and
+         * timestamps from the right, so that whatever is left in between is the description, even if it
+         * contains the field separator. The start and end offset of each field go into {@code bounds} at
+         * its {@code *_FIELD} position, with a start of -1 for a checksum or ID the record does not have.
+         *
+         * @return The number of fields the record's type needs, or -1 if the record cannot be split.
+         */
+        private int scanRecord(int lineStart, int lineEnd, int[] bounds) {
+            int typeEnd = nextSeparator(lineStart, lineEnd);
+            int statusEnd = typeEnd < 0 ? -1 : nextSeparator(typeEnd + 3, lineEnd);
+            if (statusEnd < 0 || typeEnd - lineStart != 1) {
+                return -1;
+            }
+            int typeFieldCount = RecordChecksum.fieldCount(String.valueOf((char) buffer.get(lineStart)));
+            if (typeFieldCount < 0) {
+                return -1;
+            }
+            setField(bounds, TYPE_FIELD, lineStart, typeEnd);
+            setField(bounds, STATUS_FIELD, typeEnd + 3, statusEnd);
+            int descriptionStart = statusEnd + 3;
+            int end = lineEnd;
+            int fieldStart = trailingFieldStart(descriptionStart, end);
+            bounds[CHECKSUM_FIELD * 2] = -1;
+            if (fieldStart >= 0 && end - fieldStart == RecordChecksum.LENGTH && parseChecksum(fieldStart) >= 0) {
+                setField(bounds, CHECKSUM_FIELD, fieldStart, end);
+                end = fieldStart - 3;
+                fieldStart = trailingFieldStart(descriptionStart, end);
+            }
+            bounds[ID_FIELD * 2] = -1;
+            if (fieldStart >= 0 && isIdField(fieldStart, end)) {
+                setField(bounds, ID_FIELD, fieldStart, end);
+                end = fieldStart - 3;
+            }
+            for (int field = FIRST_TIMESTAMP_FIELD + typeFieldCount - 4; field >= FIRST_TIMESTAMP_FIELD; field--) {
+                fieldStart = trailingFieldStart(descriptionStart, end);
+                if (fieldStart < 0) {
+                    return -1;
+                }
+                setField(bounds, field, fieldStart, end);
+                end = fieldStart - 3;
+            }
+            setField(bounds, DESCRIPTION_FIELD, descriptionStart, end);
+            return typeFieldCount;
+        }
+
+        private void setField(int[] bounds, int field, int fieldStart, int fieldEnd) {
+            bounds[field * 2] = fieldStart;
+            bounds[field * 2 + 1] = fieldEnd;
+        }
+
+        private boolean isSeparator(int offset) {
+            return buffer.get(offset) == ' ' && buffer.get(offset + 1) == '|' && buffer.get(offset + 2) == ' ';
+        }
+
+        /**
+         * Returns the offset of the first separator in a range, or -1 if there is none.
+         */
+        private int nextSeparator(int from, int end) {
+            for (int i = from; i + 3 <= end; i++) {
+                if (isSeparator(i)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Finds the start of the last field before the given end, without reaching into the description.
+         *
+         * @return The start of the field, or -1 if there is no separator between the description and the end.
+         */
+        private int trailingFieldStart(int descriptionStart, int end) {
+            for (int i = end - 3; i >= descriptionStart; i--) {
+                if (isSeparator(i)) {
+                    return i + 3;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Checks whether a field is an ID: a '#' followed by up to nine digits.
+         */
+        private boolean isIdField(int fieldStart, int fieldEnd) {
+            if (buffer.get(fieldStart) != '#' || fieldEnd - fieldStart < 2 || fieldEnd - fieldStart > 10) {
+                return false;
+            }
+            for (int i = fieldStart + 1; i < fieldEnd; i++) {
+                if (buffer.get(i) < '0' || buffer.get(i) > '9') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Parses a "yyyy-MM-dd HH:mm" timestamp straight from its digits, falling back to the formatter
+         * for anything that does not have that exact shape.
+         */
+        private LocalDateTime parseDateTime(int fieldStart, int fieldEnd) {
+            if (fieldEnd - fieldStart == 16 && buffer.get(fieldStart + 4) == '-' && buffer.get(fieldStart + 7) == '-'
+                    && buffer.get(fieldStart + 10) == ' ' && buffer.get(fieldStart + 13) == ':') {
+                int year = digits(fieldStart, 4);
+                int month = digits(fieldStart + 5, 2);
+                int day = digits(fieldStart + 8, 2);
+                int hour = digits(fieldStart + 11, 2);
+                int minute = digits(fieldStart + 14, 2);
+                if (year >= 0 && month >= 0 && day >= 0 && hour >= 0 && minute >= 0) {
+                    try {
+                        return LocalDateTime.of(year, month, day, hour, minute);
+                    } catch (DateTimeException e) {
+                        // Let the formatter decide, so the result matches the sequential path.
+                    }
+                }
+            }
+            return LocalDateTime.parse(decode(fieldStart, fieldEnd), FILE_FORMATTER);
+        }
+
+        /**
+         * Reads the eight hex digits of a checksum.
+         *
+         * @return The checksum, or -1 if any of the characters is not a lowercase hex digit.
+         */
+        private long parseChecksum(int offset) {
+            long value = 0;
+            for (int i = offset; i < offset + RecordChecksum.LENGTH; i++) {
+                int digit = Character.digit(buffer.get(i), 16);
+                if (digit < 0 || Character.isUpperCase(buffer.get(i))) {
+                    return -1;
+                }
+                value = (value << 4) | digit;
+            }
+            return value;
+        }
+
+        /**
+         * Reads a run of decimal digits.
+         *
+         * @return The value of the digits, or -1 if any of them is not a digit.
+         */
+        private int digits(int offset, int count) {
+            int value = 0;
+            for (int i = offset; i < offset + count; i++) {
+                int digit = buffer.get(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    return -1;
+                }
+                value = value * 10 + digit;
+            }
+            return value;
+        }
+
+        private String decode(int from, int to) {
+            byte[] bytes = new byte[to - from];
+            buffer.get(from, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
+
+/**
+ * Describes how long a load of the data file took.
+ */
+class LoadStats {
+    /** Whether startup and load times are printed, which is turned on with -Dtalkingcat.loadStats=true. */
+    static final boolean IS_REPORTED = Boolean.getBoolean("talkingcat.loadStats");
+
+    private int records;
+    private long bytes;
+    private long nanos;
+
+    /**
+     * Creates a LoadStats instance.
+     *
+     * @param records The number of records loaded.
+     * @param bytes The size of the file in bytes.
+     * @param nanos The time the load took in nanoseconds.
+     */
+    public LoadStats(int records, long bytes, long nanos) {
+        this.records = records;
+        this.bytes = bytes;
+        this.nanos = nanos;
+    }
+
+    public int getRecords() {
+        return records;
+    }
+
+    /**
+     * Returns the load throughput.
+     *
+     * @return The number of records loaded per second.
+     */
+    public double getRecordsPerSecond() {
+        return nanos == 0 ? 0 : records * 1_000_000_000.0 / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Loaded %d records (%d bytes) in %.1f ms (%.0f records/s)",
+                records, bytes, nanos / 1_000_000.0, getRecordsPerSecond());
+    }
+}
+
+/**
+ * Reports the outcome of migrating a data file: how many records were repaired and how many bytes were reclaimed.
+ */
+class CompactionReport {
+    private String path;
+    private int records;
+    private int repairedRecords;
+    private long bytesBefore;
+    private long bytesAfter;
+
+    /**
+     * Creates a CompactionReport instance.
+     *
+     * @param path The data file that was migrated.
+     * @param records The number of records in the migrated file.
+     * @param repairedRecords The number of records whose description was repaired.
+     * @param bytesBefore The size of the data file and its journal before the migration.
+     * @param bytesAfter The size of the data file and its journal after the migration.
+     */
+    public CompactionReport(String path, int records, int repairedRecords, long bytesBefore, long bytesAfter) {
+        this.path = path;
+        this.records = records;
+        this.repairedRecords = repairedRecords;
+        this.bytesBefore = bytesBefore;
+        this.bytesAfter = bytesAfter;
+    }
+
+    public long getBytesReclaimed() {
+        return bytesBefore - bytesAfter;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Compacted %s: %d records, %d descriptions repaired, %d bytes -> %d bytes "
+                + "(%d bytes reclaimed)", path, records, repairedRecords, bytesBefore, bytesAfter, getBytesReclaimed());
+    }
+}
+
+/**
+ * Offline tool that migrates data files written by older versions and folds in their journals.
+ * Run it while the application is closed, passing the data files to migrate.
+ */
+class StorageCompactor {
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Usage: StorageCompactor <data file>...");
+            return;
+        }
+        long totalReclaimed = 0;
+        for (String path : args) {
+            if (!new File(path).isFile()) {
+                System.out.println("Skipped " + path + ": no such data file.");
+                continue;
+            }
+            try {
+                CompactionReport report = new Storage(path, true).migrate();
+                totalReclaimed += report.getBytesReclaimed();
+                System.out.println(report);
+            } catch (TalkingCatException e) {
+                System.out.println("Could not compact " + path + ": " + e.getMessage());
+            }
+        }
+        System.out.println("Reclaimed " + totalReclaimed + " bytes in total.");
+    }
+}
+
+/**
+ * Computes and checks the CRC-32 checksums that end stored records and journal entries.
+ * A checksum is written as " | " followed by eight lowercase hex digits of the CRC of everything before it.
+ */
+class RecordChecksum {
+    static final int LENGTH = 8;
+    private static final String SEPARATOR = " | ";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Appends the checksum of the given record.
+     *
+     * @param record The record without a checksum.
+     * @return The record followed by its checksum.
+     */
+    public static String append(String record) {
+        return record + SEPARATOR + toHex(compute(record));
+    }
+
+    /**
+     * Formats a checksum as eight lowercase hex digits.
+     *
+     * @param value The checksum.
+     * @return The hex digits of the checksum.
+     */
+    public static String toHex(long value) {
+        char[] hex = new char[LENGTH];
+        for (int i = LENGTH - 1; i >= 0; i--) {
+            hex[i] = HEX_DIGITS[(int) (value & 0xf)];
+            value >>>= 4;
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Checks the checksum at the end of a line and removes it.
+     *
+     * @param line The record followed by its checksum.
+     * @return The record without its checksum, or null if the checksum is missing or does not match.
+     */
+    public static String strip(String line) {
+        int separator = line.lastIndexOf(SEPARATOR);
+        if (separator < 0 || !isChecksum(line.substring(separator + SEPARATOR.length()))) {
+            return null;
+        }
+        String record = line.substring(0, separator);
+        long expected = Long.parseLong(line.substring(separator + SEPARATOR.length()), 16);
+        return compute(record) == expected ? record : null;
+    }
+
+    /**
+     * Checks whether a field has the shape of a checksum.
+     *
+     * @param field The field to check.
+     * @return true if the field is eight lowercase hex digits.
+     */
+    public static boolean isChecksum(String field) {
+        if (field.length() != LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < LENGTH; i++) {
+            char c = field.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of fields a record of the given type has, not counting the checksum.
+     *
+     * @param type The type field of the record.
+     * @return The number of fields, or -1 for an unknown type.
+     */
+    public static int fieldCount(String type) {
+        switch (type) {
+            case "T":
+                return 3;
+            case "D":
+                return 4;
+            case "E":
+                return 5;
+            default:
+                return -1;
+        }
+    }
+
+    private static long compute(String record) {
+        CRC32 crc = new CRC32();
+        crc.update(record.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+}
+
+/**
+ * Remembers where each task's record sits in the data file, in list order, so that a single record can be
+ * patched in place. A start of -1 marks a task whose record is not in the data file.
+ */
+class RecordIndex {
+    private long[] starts = new long[16];
+    private int[] bodyLengths = new int[16];
+    private boolean[] checksums = new boolean[16];
+    private int size;
+
+    /**
+     * Adds the location of the next record.
+     *
+     * @param start The offset of the record in the data file, or -1 if it is not in the data file.
+     * @param bodyLength The length of the record in bytes, not counting its checksum or line break.
+     * @param hasChecksum Whether the record is followed by a checksum.
+     */
+    public void add(long start, int bodyLength, boolean hasChecksum) {
+        if (size == starts.length) {
+            starts = Arrays.copyOf(starts, size * 2);
+            bodyLengths = Arrays.copyOf(bodyLengths, size * 2);
+            checksums = Arrays.copyOf(checksums, size * 2);
+        }
+        starts[size] = start;
+        bodyLengths[size] = bodyLength;
+        checksums[size] = hasChecksum;
+        size++;
+    }
+
+    /**
+     * Adds the locations of all records of another index.
+     *
+     * @param other The index to append.
+     */
+    public void addAll(RecordIndex other) {
+        for (int i = 0; i < other.size; i++) {
+            add(other.starts[i], other.bodyLengths[i], other.checksums[i]);
+        }
+    }
+
+    /**
+     * Forgets the location of a record whose task has been deleted.
+     *
+     * @param index The position of the deleted task.
+     */
+    public void remove(int index) {
+        System.arraycopy(starts, index + 1, starts, index, size - index - 1);
+        System.arraycopy(bodyLengths, index + 1, bodyLengths, index, size - index - 1);
+        System.arraycopy(checksums, index + 1, checksums, index, size - index - 1);
+        size--;
+    }
+
+    public long getStart(int index) {
+        return index < size ? starts[index] : -1;
+    }
+
+    public int getBodyLength(int index) {
+        return bodyLengths[index];
+    }
+
+    public boolean hasChecksum(int index) {
+        return checksums[index];
+    }
+
+    public int getSize() {
+        return size;
+    }
+}
+
+/**
+ * The on-disk formats the storage file can be saved in.
+ */
+enum StorageFormat {
+    TEXT,
+    BINARY
+}
+
+/**
+ * Reads and writes the versioned binary snapshot format.
+ * The file starts with a header of magic bytes, a version and the record count. Each record then holds
+ * a length-prefixed UTF-8 description, a type byte, a done flag and its timestamps as epoch minutes.
+ * From version 2 on, each record is followed by the CRC-32 of its bytes, and from version 3 on,
+ * the done flag is followed by the task's ID.
+ */
+class BinarySnapshot {
+    private static final byte[] MAGIC = {'N', 'Y', 'A', 'N'};
+    private static final short VERSION = 3;
+    private static final short CHECKED_VERSION = 2;
+    private static final short UNCHECKED_VERSION = 1;
+    private static final int HEADER_SIZE = MAGIC.length + 2 + 4;
+
+    /**
+     * Checks whether the given file starts with the binary snapshot magic bytes.
+     *
+     * @param path The file to check.
+     * @return true if the file is a binary snapshot.
+     * @throws IOException If the file cannot be read.
+     */
+    public static boolean isBinary(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(MAGIC.length);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // Keep reading until the magic bytes are in or the file ends.
+            }
+            return !header.hasRemaining() && Arrays.equals(header.array(), MAGIC);
+        }
+    }
+
+    /**
+     * Reads every task from a binary snapshot.
+     * A record that fails its checksum is skipped. If the record structure itself is broken, the rest of
+     * the file cannot be resynchronised, so the remaining bytes are reported as a single corrupt record.
+     *
+     * @param path The snapshot file.
+     * @param corruptRecords The list that Base64 copies of unreadable records are added to.
+     * @param index The index that the location of each record is added to, in file order.
+     * @return The tasks in the order they were written, with null in place of each unreadable record.
+     * @throws IOException If the file cannot be read or has an unreadable header.
+     */
+    public static List<Task> read(Path path, List<String> corruptRecords, RecordIndex index) throws IOException {
+        return read(path, corruptRecords, index, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Reads the first records of a binary snapshot.
+     *
+     * @param path The snapshot file.
+     * @param corruptRecords The list that Base64 copies of unreadable records are added to.
+     * @param index The index that the location of each record is added to, in file order.
+     * @param limit The maximum number of records to read, counting unreadable ones.
+     * @return The tasks in the order they were written, with null in place of each unreadable record.
+     * @throws IOException If the file cannot be read or has an unreadable header.
+     */
+    public static List<Task> read(Path path, List<String> corruptRecords, RecordIndex index, int limit)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_SIZE) {
+                throw new IOException("Binary data file is truncated.");
+            }
+            byte[] magic = new byte[MAGIC.length];
+            buffer.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Not a binary data file.");
+            }
+            short version = buffer.getShort();
+            if (version < UNCHECKED_VERSION || version > VERSION) {
+                throw new IOException("Unsupported binary data file version: " + version);
+            }
+            int count = buffer.getInt();
+            List<Task> tasks = new ArrayList<>(Math.max(0, Math.min(count, limit)));
+            CRC32 crc = new CRC32();
+            // Records appended after the last full write may not be counted in the header yet,
+            // so the count is only used as a size hint and records are read up to the end of the file.
+            while (buffer.hasRemaining() && tasks.size() < limit) {
+                int recordStart = buffer.position();
+                try {
+                    Task task = readRecord(buffer, version);
+                    int recordEnd = buffer.position();
+                    if (version >= CHECKED_VERSION) {
+                        crc.reset();
+                        crc.update(buffer.duplicate().position(recordStart).limit(recordEnd));
+                        if ((int) crc.getValue() != buffer.getInt()) {
+                            corruptRecords.add(encode(buffer, recordStart, recordEnd));
+                            task = null;
+                        }
+                    }
+                    tasks.add(task);
+                    index.add(task == null ? -1 : recordStart, recordEnd - recordStart, version >= CHECKED_VERSION);
+                } catch (BufferUnderflowException | IllegalArgumentException | DateTimeException | IOException e) {
+                    corruptRecords.add(encode(buffer, recordStart, buffer.limit()));
+                    tasks.add(null);
+                    index.add(-1, 0, false);
+                    break;
+                }
+            }
+            return tasks;
+        }
+    }
+
+    private static String encode(ByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        buffer.get(from, bytes);
+        return "binary record: " + Base64.getEncoder().encodeToString(bytes);
+    }
+
+    private static Task readRecord(ByteBuffer buffer, short version) throws IOException {
+        // The length prefix is not covered by the checksum, so it is checked before anything is allocated.
+        int descriptionLength = buffer.getInt();
+        if (descriptionLength < 0 || descriptionLength > buffer.remaining()) {
+            throw new IOException("Description length out of range in binary data file: " + descriptionLength);
+        }
+        byte[] descriptionBytes = new byte[descriptionLength];
+        buffer.get(descriptionBytes);
+        String description = new String(descriptionBytes, StandardCharsets.UTF_8);
+        byte type = buffer.get();
+        boolean isDone = buffer.get() != 0;
+        int id = version >= VERSION ? buffer.getInt() : 0;
+        Task task;
+        switch (type) {
+            case 'T':
+                task = new Todo(description);
+                break;
+            case 'D':
+                task = new Deadline(description, fromEpochMinutes(buffer.getLong()));
+                break;
+            case 'E':
+                task = new Event(description, fromEpochMinutes(buffer.getLong()), fromEpochMinutes(buffer.getLong()));
+                break;
+            default:
+                throw new IOException("Unknown task type in binary data file: " + type);
+        }
+        if (isDone) task.markAsDone();
+        task.setId(id);
+        return task;
+    }
+
+    /**
+     * Writes every task as a binary snapshot.
+     *
+     * @param out The stream to write to.
+     * @param tasks The snapshot of the list to write.
+     * @param index The index that the location of each written record is added to.
+     * @throws IOException If the stream cannot be written.
+     */
+    public static void write(OutputStream out, TaskSnapshot tasks, RecordIndex index) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.write(MAGIC);
+        data.writeShort(VERSION);
+        data.writeInt(tasks.size());
+        long offset = HEADER_SIZE;
+        for (int i = 0; i < tasks.size(); i++) {
+            byte[] record = encodeRecord(tasks.get(i), tasks.isDone(i));
+            data.write(record);
+            index.add(offset, record.length - 4, true);
+            offset += record.length;
+        }
+        data.flush();
+    }
+
+    /**
+     * Encodes a single task as a record followed by its checksum.
+     *
+     * @param task The task to encode.
+     * @return The bytes of the record.
+     * @throws IOException If the record cannot be encoded.
+     */
+    public static byte[] encodeRecord(Task task) throws IOException {
+        return encodeRecord(task, task.isDone);
+    }
+
+    /**
+     * Encodes a single task with the given status as a record followed by its checksum.
+     *
+     * @param task The task to encode.
+     * @param isDone The status to store, as captured by a snapshot.
+     * @return The bytes of the record.
+     * @throws IOException If the record cannot be encoded.
+     */
+    public static byte[] encodeRecord(Task task, boolean isDone) throws IOException {
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+        DataOutputStream record = new DataOutputStream(recordBytes);
+        writeRecord(record, task, isDone);
+        CRC32 crc = new CRC32();
+        crc.update(recordBytes.toByteArray());
+        record.writeInt((int) crc.getValue());
+        return recordBytes.toByteArray();
+    }
+
+    /**
+     * Increments the record count in the header of a binary snapshot after a record has been appended.
+     *
+     * @param channel An open channel to the snapshot file.
+     * @throws IOException If the header cannot be read or written.
+     */
+    public static void incrementCount(FileChannel channel) throws IOException {
+        ByteBuffer count = ByteBuffer.allocate(4);
+        long position = MAGIC.length + 2;
+        while (count.hasRemaining() && channel.read(count, position + count.position()) >= 0) {
+            // Keep reading until the whole count is in.
+        }
+        count.putInt(0, count.getInt(0) + 1).rewind();
+        while (count.hasRemaining()) {
+            channel.write(count, position + count.position());
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, Task task, boolean isDone) throws IOException {
+        byte[] descriptionBytes = task.getRawDescription().getBytes(StandardCharsets.UTF_8);
+        out.writeInt(descriptionBytes.length);
+        out.write(descriptionBytes);
+        if (task instanceof Deadline) {
+            out.writeByte('D');
+            out.writeBoolean(isDone);
+            out.writeInt(task.getId());
+            out.writeLong(toEpochMinutes(((Deadline) task).getBy()));
+        } else if (task instanceof Event) {
+            out.writeByte('E');
+            out.writeBoolean(isDone);
+            out.writeInt(task.getId());
+            out.writeLong(toEpochMinutes(((Event) task).getFrom()));
+            out.writeLong(toEpochMinutes(((Event) task).getTo()));
+        } else {
+            out.writeByte('T');
+            out.writeBoolean(isDone);
+            out.writeInt(task.getId());
+        }
+    }
+
+    private static long toEpochMinutes(LocalDateTime dateTime) {
+        return Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    private static LocalDateTime fromEpochMinutes(long minutes) {
+        return LocalDateTime.ofEpochSecond(minutes * 60, 0, ZoneOffset.UTC);
+    }
+}
+
+/**
+ * This class is responsible for parsing user input into command objects for execution.
+ */
+class Parser {
+    private static final Pattern FIND_OPTION = Pattern.compile("(?:^|\\s)--(limit|offset)(?:\\s+(\\S*))?");
+    private static final String INVALID_SELECTION = "Invalid task selection. Use positions and ranges such as "
+            + "3,7,9-12 or all, optionally followed by done:true or done:false.";
+    private static final CommandRegistry REGISTRY = new CommandRegistry()
+            .register("todo", Parser::createAddTodoCommand, CommandType.SHOW_TASK_LIST)
+            .register("deadline", Parser::parseAddDeadlineCommand, CommandType.SHOW_TASK_LIST)
+            .register("event", Parser::parseAddEventCommand, CommandType.SHOW_TASK_LIST)
+            .register("list", (line, start) -> isBlank(line, start, line.length())
+                    ? new ListCommand()
+                    : createListCommand(line.substring(start)), CommandType.SHOW_RESULT)
+            .register("mark", Parser::createMarkCommand, CommandType.SHOW_TASK_LIST)
+            .register("unmark", Parser::createUnmarkCommand, CommandType.SHOW_TASK_LIST)
+            .register("delete", Parser::createDeleteCommand, CommandType.SHOW_TASK_LIST)
+            .register("find", Parser::createFindCommand, CommandType.SHOW_RESULT)
+            .register("convert", (line, start) -> createConvertCommand(line.substring(start)), CommandType.SHOW_RESULT)
+            .register("due", (line, start) -> createDueCommand(line.substring(start)), CommandType.SHOW_RESULT)
+            .register("on", (line, start) -> new OnCommand(parseDate(line.substring(start).trim())),
+                    CommandType.SHOW_RESULT)
+            .register("conflicts", (line, start) -> new ConflictsCommand(), CommandType.SHOW_RESULT)
+            .register("import", (line, start) -> createImportCommand(line.substring(start)), CommandType.SHOW_RESULT)
+            .register("undo", (line, start) -> new UndoCommand(false), CommandType.SHOW_RESULT)
+            .register("redo", (line, start) -> new UndoCommand(true), CommandType.SHOW_RESULT)
+            .register("history", (line, start) -> new HistoryCommand(), CommandType.SHOW_RESULT)
+            .register("bye", (line, start) -> new ExitCommand(), CommandType.SHOW_RESULT);
+
+    /**
+     * Parses the user input into a command object.
+     * The keyword is looked up in the command registry with a single hash lookup, and the rest of the input
+     * is handed to the argument parser of that command type. Argument parsers scan the input once: flags
+     * such as /by, /from and /to are found by their offsets, and only the text a command keeps, such as a
+     * task description, is copied out of the input. Whitespace around the input and after the keyword is
+     * ignored.
+     *
+     * @param fullCommand The full string input by the user.
+     * @return The command object corresponding to the user input.
+     * @throws TalkingCatException If the command is unknown or if there is a format issue with the input.
+     */
+    public static Command parse(String fullCommand) throws TalkingCatException {
+        int end = skipTrailingBlanks(fullCommand, 0, fullCommand.length());
+        int start = skipLeadingBlanks(fullCommand, 0, end);
+        if (start > 0 || end < fullCommand.length()) {
+            // Argument parsers read up to the end of the input, so surrounding whitespace is cut off here.
+            fullCommand = fullCommand.substring(start, end);
+        }
+        int keywordEnd = fullCommand.indexOf(' ');
+        if (keywordEnd < 0) {
+            keywordEnd = fullCommand.length();
+        }
+        CommandType type = REGISTRY.lookup(fullCommand, keywordEnd);
+        if (type == null) {
+            throw new TalkingCatException("Unknown command");
+        }
+        return type.parse(fullCommand, skipLeadingBlanks(fullCommand, keywordEnd, fullCommand.length()));
+    }
+
+    /**
+     * Adds a new command type, which parse then accepts like the built-in ones.
+     *
+     * @param keyword The keyword that starts the command, in lower case.
+     * @param parser Parses the arguments after the keyword into a command.
+     * @param renderer Turns the result of the command into what the chat window shows.
+     * @throws IllegalArgumentException If another command type already uses the keyword.
+     */
+    public static void register(String keyword, CommandType.ArgumentParser parser, CommandType.Renderer renderer) {
+        REGISTRY.register(keyword, parser, renderer);
+    }
+
+    /**
+     * Skips the whitespace that String.trim() would remove from the start of a region of the input.
+     */
+    private static int skipLeadingBlanks(String line, int start, int end) {
+        while (start < end && line.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    /**
+     * Skips the whitespace that String.trim() would remove from the end of a region of the input.
+     */
+    private static int skipTrailingBlanks(String line, int start, int end) {
+        while (end > start && line.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private static boolean isBlank(String line, int start, int end) {
+        return skipLeadingBlanks(line, start, end) == end;
+    }
+
+    /**
+     * Creates an AddTodoCommand with the rest of the input as the description.
+     *
+     * @param line The user input.
+     * @param start The position of the description, which is the argument of the todo command.
+     * @return An instance of AddTodoCommand.
+     * @throws TalkingCatException If the description is empty.
+     */
+    private static Command createAddTodoCommand(String line, int start) throws TalkingCatException {
+        if (start == line.length()) {
+            throw new TalkingCatException("The description of a todo cannot be empty.");
+        }
+        return new AddTodoCommand(line.substring(start));
+    }
+
+    /**
+     * Creates a command that lists the tasks: "list" for the first page, "list page n [size k]"
+     * for another page, or "list all" for the whole list.
+     *
+     * @param args The arguments after "list".
+     * @return An instance of ListCommand or ListAllCommand.
+     * @throws TalkingCatException If the arguments are not in one of those forms.
+     */
+    private static Command createListCommand(String args) throws TalkingCatException {
+        String[] parts = args.trim().split("\\s+");
+        if (parts[0].isEmpty()) {
+            return new ListCommand();
+        }
+        if (parts.length == 1 && parts[0].equalsIgnoreCase("all")) {
+            return new ListAllCommand();
+        }
+        if (!parts[0].equalsIgnoreCase("page") || (parts.length != 2 && parts.length != 4)
+                || (parts.length == 4 && !parts[2].equalsIgnoreCase("size"))) {
+            throw new TalkingCatException("Invalid list command format. Use list, list all or list page <n> [size <k>].");
+        }
+        int page = parsePositive(parts[1], "page number");
+        int pageSize = parts.length == 4 ? parsePositive(parts[3], "page size") : Ui.DEFAULT_PAGE_SIZE;
+        return new ListCommand(page, pageSize);
+    }
+
+    private static int parsePositive(String value, String name) throws TalkingCatException {
+        try {
+            int number = Integer.parseInt(value);
+            if (number >= 1) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below.
+        }
+        throw new TalkingCatException("The " + name + " must be a whole number of at least 1.");
+    }
+
+    private static Command createMarkCommand(String line, int start) throws TalkingCatException {
+        return isBulkSelection(line, start)
+                ? new MarkCommand(parseSelection(line.substring(start)))
+                : new MarkCommand(parseSelector(line, start));
+    }
+
+    private static Command createUnmarkCommand(String line, int start) throws TalkingCatException {
+        return isBulkSelection(line, start)
+                ? new UnmarkCommand(parseSelection(line.substring(start)))
+                : new UnmarkCommand(parseSelector(line, start));
+    }
+
+    private static Command createDeleteCommand(String line, int start) throws TalkingCatException {
+        return isBulkSelection(line, start)
+                ? new DeleteCommand(parseSelection(line.substring(start)))
+                : new DeleteCommand(parseSelector(line, start));
+    }
+
+    /**
+     * Checks whether the arguments select several tasks: "all", or anything with a comma, a dash or a space
+     * once surrounding whitespace is ignored.
+     */
+    private static boolean isBulkSelection(String line, int start) {
+        int end = skipTrailingBlanks(line, start, line.length());
+        start = skipLeadingBlanks(line, start, end);
+        if (line.startsWith("all", start)) {
+            return true;
+        }
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
+            if (c == ',' || c == '-' || c == ' ') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses a selection of several tasks: "all", or a comma-separated list of positions, ranges of positions
+     * such as 3-7 and IDs such as #12, optionally followed by "done:true" or "done:false".
+     *
+     * @param args The command arguments containing the selection.
+     * @return The parsed selection.
+     * @throws TalkingCatException If the selection is not in that form.
+     */
+    private static TaskSelection parseSelection(String args) throws TalkingCatException {
+        String[] parts = args.trim().split("\\s+");
+        if (parts.length > 2) {
+            throw new TalkingCatException(INVALID_SELECTION);
+        }
+        Boolean doneFilter = null;
+        if (parts.length == 2) {
+            switch (parts[1].toLowerCase()) {
+                case "done:true":
+                    doneFilter = true;
+                    break;
+                case "done:false":
+                    doneFilter = false;
+                    break;
+                default:
+                    throw new TalkingCatException("Invalid status filter. Use done:true or done:false.");
+            }
+        }
+        if (parts[0].equalsIgnoreCase("all")) {
+            return new TaskSelection(true, List.of(), List.of(), doneFilter);
+        }
+        List<int[]> ranges = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>();
+        for (String item : parts[0].split(",", -1)) {
+            if (item.isEmpty()) {
+                throw new TalkingCatException(INVALID_SELECTION);
+            }
+            if (item.startsWith("#")) {
+                try {
+                    ids.add(Integer.parseInt(item.substring(1)));
+                } catch (NumberFormatException e) {
+                    throw new TalkingCatException("Invalid task ID format: " + item);
+                }
+                continue;
+            }
+            int dash = item.indexOf('-');
+            int first = parseIndex(dash < 0 ? item : item.substring(0, dash));
+            int last = dash < 0 ? first : parseIndex(item.substring(dash + 1));
+            if (first < 0 || last < first) {
+                throw new TalkingCatException("Invalid task range: " + item);
+            }
+            ranges.add(new int[] {first, last});
+        }
+        if (ranges.isEmpty() && ids.isEmpty()) {
+            throw new TalkingCatException(INVALID_SELECTION);
+        }
+        return new TaskSelection(false, ranges, ids, doneFilter);
+    }
+
+    /**
+     * Parses a task reference from the command arguments: either "#" followed by the task's ID,
+     * or the task's current position in the list.
+     *
+     * @param line The user input.
+     * @param start The position of the reference, which runs to the end of the input.
+     * @return The parsed reference.
+     * @throws TalkingCatException If the reference is not a valid ID or position.
+     */
+    private static TaskSelector parseSelector(String line, int start) throws TalkingCatException {
+        if (line.startsWith("#", start)) {
+            try {
+                return TaskSelector.byId(Integer.parseInt(line, start + 1, line.length(), 10));
+            } catch (NumberFormatException e) {
+                throw new TalkingCatException("Invalid task ID format.");
+            }
+        }
+        try {
+            return TaskSelector.atPosition(Integer.parseInt(line, start, line.length(), 10) - 1);
+        } catch (NumberFormatException e) {
+            throw new TalkingCatException("Invalid task number format.");
+        }
+    }
+
+    /**
+     * Creates a find command. A plain keyword is taken straight from the input; paging options and
+     * /all or /any searches go through {@link #createFindCommand(String)}.
+     *
+     * @param line The user input.
+     * @param start The position of the arguments after "find".
+     * @return An instance of FindCommand or FindWordsCommand.
+     * @throws TalkingCatException If the keyword is empty or a paging option is not a valid number.
+     */
+    private static Command createFindCommand(String line, int start) throws TalkingCatException {
+        if (line.indexOf("--", start) < 0) {
+            int end = skipTrailingBlanks(line, start, line.length());
+            int keywordStart = skipLeadingBlanks(line, start, end);
+            if (keywordStart == end) {
+                throw new TalkingCatException("The keyword for find cannot be empty.");
+            }
+            if (!line.startsWith("/all", keywordStart) && !line.startsWith("/any", keywordStart)) {
+                return new FindCommand(line.substring(keywordStart, end), 0, Integer.MAX_VALUE);
+            }
+        }
+        return createFindCommand(line.substring(start));
+    }
+
+    /**
+     * Creates a find command. The arguments may include "--limit n" to show at most n matches
+     * and "--offset n" to skip the first n matches.
+     *
+     * @param args The keyword, or /all or /any followed by words, and any paging options.
+     * @return An instance of FindCommand or FindWordsCommand.
+     * @throws TalkingCatException If the keyword is empty or a paging option is not a valid number.
+     */
+    private static Command createFindCommand(String args) throws TalkingCatException {
+        int offset = 0;
+        int limit = Integer.MAX_VALUE;
+        Matcher option = FIND_OPTION.matcher(args);
+        StringBuffer keyword = new StringBuffer();
+        while (option.find()) {
+            int value = parseCount(option.group(2), option.group(1));
+            if (option.group(1).equals("limit")) {
+                limit = value;
+            } else {
+                offset = value;
+            }
+            option.appendReplacement(keyword, "");
+        }
+        option.appendTail(keyword);
+        args = keyword.toString().trim();
+        if (args.isEmpty()) {
+            throw new TalkingCatException("The keyword for find cannot be empty.");
+        }
+        if (limit == 0) {
+            throw new TalkingCatException("The --limit for find must be at least 1.");
+        }
+        String[] parts = args.split("\\s+", 2);
+        if (parts[0].equals("/all") || parts[0].equals("/any")) {
+            if (parts.length < 2 || TokenIndex.tokenize(parts[1]).isEmpty()) {
+                throw new TalkingCatException("Please give the words to find after " + parts[0] + ".");
+            }
+            return new FindWordsCommand(parts[1], parts[0].equals("/all"), offset, limit);
+        }
+        return new FindCommand(args, offset, limit);
+    }
+
+    private static int parseCount(String value, String name) throws TalkingCatException {
+        try {
+            int count = Integer.parseInt(value);
+            if (count >= 0) {
+                return count;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below.
+        }
+        throw new TalkingCatException("The --" + name + " for find must be a whole number.");
+    }
+
+    /**
+     * Creates a DueCommand. A date on its own includes everything due by the end of that day.
+     *
+     * @param args The date in yyyy-MM-dd format, optionally followed by a time in HHmm format.
+     * @return An instance of DueCommand.
+     * @throws TalkingCatException If the date or time is not in the expected format.
+     */
+    private static Command createDueCommand(String args) throws TalkingCatException {
+        String[] parts = args.trim().split("\\s+", 2);
+        LocalDate date = parseDate(parts[0]);
+        if (parts.length < 2) {
+            return new DueCommand(date.atTime(LocalTime.MAX));
+        }
+        try {
+            return new DueCommand(DateTimeCodec.parse(args.trim(), DateTimeCodec.Layout.INPUT));
+        } catch (DateTimeParseException e) {
+            throw new TalkingCatException("Invalid date format. Please use yyyy-MM-dd HHmm format.");
+        }
+    }
+
+    private static LocalDate parseDate(String args) throws TalkingCatException {
+        try {
+            return LocalDate.parse(args);
+        } catch (DateTimeParseException e) {
+            throw new TalkingCatException("Invalid date format. Please use yyyy-MM-dd format.");
+        }
+    }
+
+    private static Command createImportCommand(String args) throws TalkingCatException {
+        if (args.isBlank()) {
+            throw new TalkingCatException("Please give the file to import.");
+        }
+        try {
+            return new ImportCommand(Paths.get(args.trim()));
+        } catch (InvalidPathException e) {
+            throw new TalkingCatException("Invalid file name: " + args.trim());
+        }
+    }
+
+    private static Command createConvertCommand(String args) throws TalkingCatException {
+        switch (args.trim().toLowerCase()) {
+            case "text":
+                return new ConvertCommand(StorageFormat.TEXT);
+            case "binary":
+                return new ConvertCommand(StorageFormat.BINARY);
+            default:
+                throw new TalkingCatException("Please specify the format to convert to: text or binary.");
+        }
+    }
+
+    /**
+     * Parses an index from the command arguments.
+     *
+     * @param args The command arguments containing the index.
+     * @return The parsed index.
+     * @throws TalkingCatException If the index is not a valid integer.
+     */
+    private static int parseIndex(String args) throws TalkingCatException {
+        try {
+            return Integer.parseInt(args) - 1;
+        } catch (NumberFormatException e) {
+            throw new TalkingCatException("Invalid task number format.");
+        }
+    }
+
+    private static Command parseAddDeadlineCommand(String line, int start) throws TalkingCatException {
+        int flag = line.indexOf("/by", start);
+        if (flag < 0) {
+            throw new TalkingCatException("Invalid deadline command format.");
+        }
+        int descriptionEnd = skipTrailingBlanks(line, start, flag);
+        int descriptionStart = skipLeadingBlanks(line, start, descriptionEnd);
+        int byEnd = skipTrailingBlanks(line, flag + 3, line.length());
+        int byStart = skipLeadingBlanks(line, flag + 3, byEnd);
+        if (descriptionStart == descriptionEnd || byStart == byEnd) {
+            throw new TalkingCatException("Invalid deadline command format.");
+        }
+        try {
+            LocalDateTime byDate = DateTimeCodec.parse(line, byStart, byEnd, DateTimeCodec.Layout.INPUT);
+            return new AddDeadlineCommand(line.substring(descriptionStart, descriptionEnd), byDate);
+        } catch (DateTimeParseException e) {
+            throw new TalkingCatException("Invalid date format. Please use yyyy-MM-dd HHmm format.");
+        }
+    }
+
+    private static Command parseAddEventCommand(String line, int start) throws TalkingCatException {
+        int fromFlag = line.indexOf("/from", start);
+        if (fromFlag < 0) {
+            throw new TalkingCatException("Invalid event command format. Missing '/from'.");
+        }
+        int toFlag = line.indexOf("/to", fromFlag + 5);
+        if (toFlag < 0) {
+            throw new TalkingCatException("Invalid event command format. Missing '/to'.");
+        }
+        int descriptionEnd = skipTrailingBlanks(line, start, fromFlag);
+        int fromEnd = skipTrailingBlanks(line, fromFlag + 5, toFlag);
+        int toEnd = skipTrailingBlanks(line, toFlag + 3, line.length());
+        String description = line.substring(skipLeadingBlanks(line, start, descriptionEnd), descriptionEnd);
+
+        try {
+            DateTimeCodec.Layout layout = DateTimeCodec.Layout.DISPLAY;
+            LocalDateTime startDateTime = DateTimeCodec.parse(line, skipLeadingBlanks(line, fromFlag + 5, fromEnd),
+                    fromEnd, layout);
+            LocalDateTime endDateTime = DateTimeCodec.parse(line, skipLeadingBlanks(line, toFlag + 3, toEnd),
+                    toEnd, layout);
+            return new AddEventCommand(description, startDateTime, endDateTime);
+        } catch (DateTimeParseException e) {
+            throw new TalkingCatException("Invalid date and time format. Please use 'MMM dd yyyy, HH:mm' format.");
+        }
+    }
+}
+
+
+/**
+ * Declares one kind of command: the keyword that starts it, how the rest of the input is parsed into a
+ * Command, and how the result of the command is shown in the chat window.
+ */
+class CommandType {
+    /**
+     * Parses the arguments of a command straight from the user input.
+     */
+    @FunctionalInterface
+    interface ArgumentParser {
+        /**
+         * Parses the arguments into a command.
+         *
+         * @param line The user input.
+         * @param start The position of the arguments, just after the whitespace that follows the keyword.
+         * @return The command.
+         * @throws TalkingCatException If the arguments are not in the form the command expects.
+         */
+        Command parse(String line, int start) throws TalkingCatException;
+    }
+
+    /**
+     * Turns the result of an executed command into what the chat window shows.
+     */
+    @FunctionalInterface
+    interface Renderer {
+        /**
+         * Renders the response to a command.
+         *
+         * @param result The string the command returned.
+         * @param tasks The task list after the command.
+         * @param ui The user interface.
+         * @return The response to show.
+         */
+        String render(String result, TaskList tasks, Ui ui);
+    }
+
+    /** Shows the result of the command as it is. */
+    static final Renderer SHOW_RESULT = (result, tasks, ui) -> result;
+    /** Shows the first page of the task list, for commands that change it. */
+    static final Renderer SHOW_TASK_LIST = (result, tasks, ui) -> ui.formatTaskPage(tasks, 1, Ui.DEFAULT_PAGE_SIZE);
+
+    private final String keyword;
+    private final ArgumentParser parser;
+    private final Renderer renderer;
+
+    /**
+     * Creates a command type.
+     *
+     * @param keyword The keyword that starts the command, in lower case.
+     * @param parser Parses the arguments after the keyword into a command.
+     * @param renderer Turns the result of the command into what the chat window shows.
+     */
+    CommandType(String keyword, ArgumentParser parser, Renderer renderer) {
+        this.keyword = keyword;
+        this.parser = parser;
+        this.renderer = renderer;
+    }
+
+    public String getKeyword() {
+        return keyword;
+    }
+
+    public Renderer getRenderer() {
+        return renderer;
+    }
+
+    /**
+     * Parses the arguments into a command of this type.
+     *
+     * @param line The user input.
+     * @param start The position of the arguments.
+     * @return The command, which renders its result through this type.
+     * @throws TalkingCatException If the arguments are not in the form the command expects.
+     */
+    Command parse(String line, int start) throws TalkingCatException {
+        Command command = parser.parse(line, start);
+        command.setType(this);
+        return command;
+    }
+}
+
+/**
+ * Maps keywords to command types. The table is open-addressed and hashed on the keyword with ASCII letters
+ * folded to lower case, so a keyword is found in the user input, ignoring case, with one hash lookup and
+ * without copying it out of the input.
+ */
+class CommandRegistry {
+    private CommandType[] table = new CommandType[32];
+    private int size;
+
+    /**
+     * Adds a command type.
+     *
+     * @param keyword The keyword that starts the command, in lower case.
+     * @param parser Parses the arguments after the keyword into a command.
+     * @param renderer Turns the result of the command into what the chat window shows.
+     * @return This registry.
+     * @throws IllegalArgumentException If the keyword is not a single lower-case word or is already in use.
+     */
+    public CommandRegistry register(String keyword, CommandType.ArgumentParser parser,
+            CommandType.Renderer renderer) {
+        if (keyword.isEmpty() || !keyword.equals(keyword.toLowerCase()) || keyword.indexOf(' ') >= 0) {
+            throw new IllegalArgumentException("Keywords must be a single lower-case word: " + keyword);
+        }
+        if (lookup(keyword, keyword.length()) != null) {
+            throw new IllegalArgumentException("Another command already uses the keyword " + keyword);
+        }
+        if ((size + 1) * 2 > table.length) {
+            CommandType[] oldTable = table;
+            table = new CommandType[oldTable.length * 2];
+            for (CommandType type : oldTable) {
+                if (type != null) {
+                    insert(type);
+                }
+            }
+        }
+        insert(new CommandType(keyword, parser, renderer));
+        size++;
+        return this;
+    }
+
+    /**
+     * Finds the command type whose keyword starts the input, ignoring case.
+     *
+     * @param line The user input.
+     * @param end The position just after the keyword.
+     * @return The command type, or null if no command uses that keyword.
+     */
+    public CommandType lookup(String line, int end) {
+        int mask = table.length - 1;
+        for (int slot = hash(line, end) & mask; table[slot] != null; slot = (slot + 1) & mask) {
+            String keyword = table[slot].getKeyword();
+            if (keyword.length() == end && line.regionMatches(true, 0, keyword, 0, end)) {
+                return table[slot];
+            }
+        }
+        return null;
+    }
+
+    private void insert(CommandType type) {
+        int mask = table.length - 1;
+        int slot = hash(type.getKeyword(), type.getKeyword().length()) & mask;
+        while (table[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = type;
+    }
+
+    private static int hash(String line, int end) {
+        int hash = 0;
+        for (int i = 0; i < end; i++) {
+            char c = line.charAt(i);
+            hash = 31 * hash + (c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c);
+        }
+        return hash ^ (hash >>> 16);
+    }
+}
+
+/**
+ * Represents a list of tasks in the talkingcat application.
+ * Provides functionality to add, remove, and query tasks.
+ *
+ * <p>A TaskList has a single writer: only the thread running commands calls its methods, one command at a
+ * time. Other threads, such as a background save or search, read the list through {@link #snapshot()}, an
+ * immutable copy that the writer publishes after each change and that is never locked or torn.</p>
+ */
+class TaskList {
+    private TaskSequence tasks;
+    private CompletableFuture<List<Task>> remaining;
+    private TokenIndex tokenIndex;
+    private TrigramIndex trigramIndex;
+    private NavigableMap<LocalDateTime, Set<Deadline>> deadlineIndex;
+    private EventIntervalTree eventIndex;
+    /** The most edits in the middle of the list that are replayed onto the previous snapshot's array. */
+    static final int MAX_REPLAYED_EDITS = 64;
+
+    private volatile TaskSnapshot snapshot;
+    private boolean isPublishingOnCommit = true;
+    private long version;
+    private boolean isReordered;
+    private List<TaskHistory.Edit> unpublishedEdits = new ArrayList<>();
+    private ParallelSearch parallelSearch = new ParallelSearch();
+    private TaskHistory history = new TaskHistory(TaskHistory.DEFAULT_BUDGET_BYTES);
+    private Map<Integer, Task> tasksById;
+    private int nextId;
+
+    /**
+     * Creates a TaskList with the specified list of tasks.
+     * @param tasks The initial list of tasks.
+     */
+    public TaskList(List<Task> tasks) {
+        assert tasks != null : "Task list cannot be null";
+        adopt(tasks);
+    }
+
+    /**
+     * Creates an empty TaskList.
+     */
+    public TaskList() {
+        this(new ArrayList<>());
+    }
+
+    /**
+     * Creates a TaskList from the first page of a list that is still loading.
+     * Every method except {@link #isLoading()} and {@link #getLoadedTasks()} waits for the whole list.
+     * @param firstPage The tasks at the head of the list.
+     * @param remaining The whole list, once it has loaded.
+     */
+    public TaskList(List<Task> firstPage, CompletableFuture<List<Task>> remaining) {
+        this(firstPage);
+        this.remaining = remaining;
+    }
+
+    /**
+     * Checks whether the list is still loading, switching to the whole list if it has just finished.
+     * @return true if only the first page is available.
+     */
+    public boolean isLoading() {
+        if (remaining != null && remaining.isDone()) {
+            awaitLoaded();
+        }
+        return remaining != null;
+    }
+
+    /**
+     * Waits until the whole list has loaded.
+     */
+    public void awaitLoaded() {
+        if (remaining != null) {
+            adopt(remaining.join());
+            remaining = null;
+        }
+    }
+
+    /**
+     * Takes over the given tasks, giving an ID to each task that does not have one yet.
+     */
+    private void adopt(List<Task> newTasks) {
+        assignMissingIds(newTasks);
+        snapshot = new TaskSnapshot(++version, newTasks.toArray(new Task[0]));
+        isReordered = false;
+        unpublishedEdits = new ArrayList<>();
+        tasks = new TaskSequence(newTasks);
+        tasksById = new HashMap<>();
+        nextId = 1;
+        for (Task task : newTasks) {
+            tasksById.put(task.getId(), task);
+            nextId = Math.max(nextId, task.getId() + 1);
+        }
+        tokenIndex = null;
+        trigramIndex = null;
+        deadlineIndex = null;
+        eventIndex = null;
+    }
+
+    /**
+     * Gives an ID to each task that has none, or that shares its ID with an earlier task.
+     * New IDs continue from the highest ID in use.
+     * @param tasks The tasks to check.
+     * @return true if any task was given a new ID.
+     */
+    static boolean assignMissingIds(List<Task> tasks) {
+        int highestId = 0;
+        for (Task task : tasks) {
+            highestId = Math.max(highestId, task.getId());
+        }
+        Set<Integer> usedIds = new HashSet<>();
+        boolean isChanged = false;
+        for (Task task : tasks) {
+            if (task.getId() <= 0 || !usedIds.add(task.getId())) {
+                task.setId(++highestId);
+                usedIds.add(task.getId());
+                isChanged = true;
+            }
+        }
+        return isChanged;
+    }
+
+    /**
+     * Returns the tasks loaded so far without waiting for the rest of the list.
+     * @return A read-only view of the loaded tasks, in list order.
+     */
+    public List<Task> getLoadedTasks() {
+        isLoading();
+        return Collections.unmodifiableList(tasks);
+    }
+
+    /**
+     * Adds a task to the list.
+     * @param task The task to be added.
+     */
+    public void addTask(Task task) {
+        awaitLoaded();
+        if (task.getId() <= 0 || tasksById.containsKey(task.getId())) {
+            task.setId(nextId);
+        }
+        nextId = Math.max(nextId, task.getId() + 1);
+        tasksById.put(task.getId(), task);
+        int initialSize = tasks.size();
+        tasks.add(task);
+        if (tokenIndex != null) {
+            tokenIndex.add(task);
+        }
+        if (trigramIndex != null) {
+            trigramIndex.add(task);
+        }
+        addToTimeIndexes(task);
+        noteEdit(TaskHistory.Edit.add(initialSize, task, true));
+        assert tasks.size() == initialSize + 1 : "Task list size should increase by 1";
+    }
+
+    /**
+     * Removes a task from the list by index.
+     * @param index The index of the task to be removed.
+     * @return The removed Task.
+     */
+    public Task removeTask(int index) {
+        awaitLoaded();
+        Task task = tasks.remove(index);
+        tasksById.remove(task.getId());
+        if (tokenIndex != null) {
+            tokenIndex.remove(task);
+        }
+        if (trigramIndex != null) {
+            trigramIndex.remove(task);
+        }
+        removeFromTimeIndexes(task);
+        isReordered = true;
+        noteEdit(TaskHistory.Edit.remove(index, task));
+        return task;
+    }
+
+    /**
+     * Inserts a task at the given position, keeping its ID if it has one that is not in use.
+     * The search indexes assume tasks are only appended, so they are dropped and rebuilt on the next query.
+     * @param index The position to insert the task at.
+     * @param task The task to insert.
+     */
+    public void insertTask(int index, Task task) {
+        awaitLoaded();
+        boolean isAppend = index == tasks.size();
+        if (task.getId() <= 0 || tasksById.containsKey(task.getId())) {
+            task.setId(nextId);
+        }
+        nextId = Math.max(nextId, task.getId() + 1);
+        tasksById.put(task.getId(), task);
+        tasks.add(index, task);
+        tokenIndex = null;
+        trigramIndex = null;
+        addToTimeIndexes(task);
+        isReordered = true;
+        noteEdit(TaskHistory.Edit.add(index, task, isAppend));
+    }
+
+    /**
+     * Marks the task at the given position as done or not done.
+     * @param index The position of the task.
+     * @param isDone The new status of the task.
+     * @return true if the status changed.
+     */
+    public boolean setDone(int index, boolean isDone) {
+        Task task = getTask(index);
+        if (task.isDone == isDone) {
+            return false;
+        }
+        if (isDone) {
+            task.markAsDone();
+        } else {
+            task.markAsNotDone();
+        }
+        version++;
+        history.record(TaskHistory.Edit.status(index, task, isDone));
+        return true;
+    }
+
+    /**
+     * Records an edit that adds or removes a task, both in the undo history and for the next snapshot.
+     */
+    private void noteEdit(TaskHistory.Edit edit) {
+        version++;
+        history.record(edit);
+        if (unpublishedEdits != null) {
+            unpublishedEdits.add(edit);
+            if (unpublishedEdits.size() > MAX_REPLAYED_EDITS) {
+                unpublishedEdits = null;
+            }
+        }
+    }
+
+    /**
+     * Closes the change made by one command, so that undo reverts it as a whole, and publishes a snapshot
+     * of the list after it.
+     * @param label The command that made the change.
+     */
+    public void commitChange(String label) {
+        history.commit(label);
+        if (isPublishingOnCommit && !isLoading()) {
+            publishSnapshot();
+        }
+    }
+
+    /**
+     * Sets whether a snapshot is published after every command. A writer that has no readers on other
+     * threads can turn this off, so that it does not copy the list after each change; snapshots are then
+     * only built when {@link #publishSnapshot()} is called, and {@link #snapshot()} may lag behind.
+     * @param isPublishingOnCommit Whether each command publishes a snapshot.
+     */
+    public void setPublishingOnCommit(boolean isPublishingOnCommit) {
+        this.isPublishingOnCommit = isPublishingOnCommit;
+    }
+
+    /**
+     * Returns the snapshot most recently published by the writer. Safe to call from any thread, and never
+     * waits: while the writer is in the middle of a command, this is the list as it was before the command.
+     * While the list is still loading, the snapshot holds only the first page.
+     * @return An immutable copy of the list.
+     */
+    public TaskSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Publishes a snapshot of the list as it is now, for the writer to hand to another thread.
+     * The new snapshot is built from the previous one where it can, since copying an array is much faster
+     * than walking the tree: it shares the previous array when only statuses changed, extends a copy when
+     * tasks were only appended, and replays a few edits in the middle of the list onto a copy.
+     * @return An immutable copy of the list.
+     */
+    public TaskSnapshot publishSnapshot() {
+        awaitLoaded();
+        TaskSnapshot current = snapshot;
+        if (current.getVersion() == version) {
+            return current;
+        }
+        Task[] array;
+        if (isReordered && unpublishedEdits != null) {
+            array = replay(current.getTaskArray(), unpublishedEdits);
+        } else if (isReordered) {
+            array = tasks.toArray(new Task[0]);
+        } else if (current.size() == tasks.size()) {
+            array = current.getTaskArray();
+        } else {
+            array = Arrays.copyOf(current.getTaskArray(), tasks.size());
+            Iterator<Task> appended = tasks.iterator(current.size());
+            for (int i = current.size(); i < array.length; i++) {
+                array[i] = appended.next();
+            }
+        }
+        isReordered = false;
+        unpublishedEdits = new ArrayList<>();
+        snapshot = new TaskSnapshot(version, array);
+        assert array.length == tasks.size() : "Snapshot should hold every task";
+        return snapshot;
+    }
+
+    /**
+     * Applies edits that add or remove tasks to a copy of a snapshot's array.
+     */
+    private static Task[] replay(Task[] published, List<TaskHistory.Edit> edits) {
+        Task[] array = Arrays.copyOf(published, published.length + edits.size());
+        int size = published.length;
+        for (TaskHistory.Edit edit : edits) {
+            int position = edit.getPosition();
+            if (edit.getKind() == TaskHistory.Kind.ADD) {
+                System.arraycopy(array, position, array, position + 1, size - position);
+                array[position] = edit.getTask();
+                size++;
+            } else {
+                System.arraycopy(array, position + 1, array, position, size - position - 1);
+                size--;
+            }
+        }
+        return size == array.length ? array : Arrays.copyOf(array, size);
+    }
+
+    /**
+     * Reverts the most recent change that has not been undone.
+     * @return The edits that were applied to revert it, in order, or null if there is nothing to undo.
+     */
+    public List<TaskHistory.Edit> undo() {
+        awaitLoaded();
+        TaskHistory.Change change = history.popUndo();
+        if (change == null) {
+            return null;
+        }
+        List<TaskHistory.Edit> applied = new ArrayList<>();
+        for (int i = change.getEdits().size() - 1; i >= 0; i--) {
+            applied.add(apply(change.getEdits().get(i).inverse()));
+        }
+        history.pushRedo(change);
+        return applied;
+    }
+
+    /**
+     * Reapplies the most recently undone change.
+     * @return The edits that were applied, in order, or null if there is nothing to redo.
+     */
+    public List<TaskHistory.Edit> redo() {
+        awaitLoaded();
+        TaskHistory.Change change = history.popRedo();
+        if (change == null) {
+            return null;
+        }
+        List<TaskHistory.Edit> applied = new ArrayList<>();
+        for (TaskHistory.Edit edit : change.getEdits()) {
+            applied.add(apply(edit));
+        }
+        history.pushUndo(change);
+        return applied;
+    }
+
+    /**
+     * Returns the undo history of the list.
+     * @return The history.
+     */
+    public TaskHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Applies one edit without recording it in the history.
+     */
+    private TaskHistory.Edit apply(TaskHistory.Edit edit) {
+        history.pause();
+        try {
+            switch (edit.getKind()) {
+                case ADD:
+                    if (edit.getPosition() == tasks.size()) {
+                        addTask(edit.getTask());
+                    } else {
+                        insertTask(edit.getPosition(), edit.getTask());
+                    }
+                    return TaskHistory.Edit.add(edit.getPosition(), edit.getTask(),
+                            edit.getPosition() == tasks.size() - 1);
+                case REMOVE:
+                    removeTask(edit.getPosition());
+                    return edit;
+                default:
+                    setDone(edit.getPosition(), edit.isDone());
+                    return edit;
+            }
+        } finally {
+            history.resume();
+        }
+    }
+
+    /**
+     * Retrieves a task by its permanent ID.
+     * @param id The ID of the task.
+     * @return The task, or null if no task in the list has that ID.
+     */
+    public Task getTaskById(int id) {
+        awaitLoaded();
+        return tasksById.get(id);
+    }
+
+    /**
+     * Finds the current position of a task.
+     * @param task The task to look for.
+     * @return The position of the task, or -1 if it is not in the list.
+     */
+    public int indexOf(Task task) {
+        awaitLoaded();
+        return tasks.indexOf(task);
+    }
+
+    /**
+     * Retrieves a task from the list by index.
+     * @param index The index of the task to retrieve.
+     * @return The Task at the specified index.
+     */
+    public Task getTask(int index) {
+        awaitLoaded();
+        assert index >= 0 && index < tasks.size() : "Task index is out of bounds";
+        return tasks.get(index);
+    }
+
+    /**
+     * Returns the number of tasks in the list.
+     * @return The size of the task list.
+     */
+    public int getSize() {
+        awaitLoaded();
+        return tasks.size();
+    }
+
+    /**
+     * Returns a run of consecutive tasks, in O(log n + count) time.
+     * @param from The position of the first task.
+     * @param count The largest number of tasks to return.
+     * @return The tasks from that position, fewer than count if the list ends first.
+     */
+    public List<Task> getTasks(int from, int count) {
+        awaitLoaded();
+        List<Task> page = new ArrayList<>();
+        Iterator<Task> iterator = tasks.iterator(Math.min(from, tasks.size()));
+        while (page.size() < count && iterator.hasNext()) {
+            page.add(iterator.next());
+        }
+        return page;
+    }
+
+    /**
+     * Returns a read-only view of the tasks in the list.
+     * @return The tasks, in list order.
+     */
+    public List<Task> asList() {
+        awaitLoaded();
+        return Collections.unmodifiableList(tasks);
+    }
+
+    /**
+     * Finds and returns a list of tasks that contain the specified keyword in their description.
+     * Keywords of three or more characters are answered through a trigram index, which the first such
+     * query builds and add and remove then keep up to date. Shorter keywords scan the whole list.
+     * @param keyword The keyword to search for in task descriptions.
+     * @return A list of tasks that match the keyword search.
+     */
+    public List<Task> findTasks(String keyword) {
+        return findTasks(keyword, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Finds one page of the tasks that contain the specified keyword, stopping once the page is full.
+     * Keywords shorter than three characters scan the list, in parallel once the list is long.
+     * @param keyword The keyword to search for in task descriptions.
+     * @param offset The number of matches to skip.
+     * @param limit The largest number of matches to return.
+     * @return The matches after the offset, in list order.
+     */
+    public List<Task> findTasks(String keyword, int offset, int limit) {
+        awaitLoaded();
+        String lowerCaseKeyword = keyword.toLowerCase();
+        if (lowerCaseKeyword.length() < TrigramIndex.GRAM_LENGTH) {
+            return parallelSearch.find(publishSnapshot().getTaskArray(), keyword, offset, limit);
+        }
+        if (trigramIndex == null) {
+            trigramIndex = new TrigramIndex();
+            for (Task task : tasks) {
+                trigramIndex.add(task);
+            }
+        }
+        int wanted = (int) Math.min(Integer.MAX_VALUE, (long) offset + limit);
+        List<Task> matches = trigramIndex.find(lowerCaseKeyword, wanted);
+        return offset >= matches.size() ? new ArrayList<>() : matches.subList(offset, matches.size());
+    }
+
+    /**
+     * Describes the size of the substring search index.
+     * @return The memory used by the trigram index, or a note that it has not been built yet.
+     */
+    public String getSearchIndexStats() {
+        return trigramIndex == null ? "The search index has not been built yet." : trigramIndex.toString();
+    }
+
+    /**
+     * Finds matching tasks among those loaded so far, without waiting for the rest of the list.
+     * @param keyword The keyword to search for in task descriptions.
+     * @param offset The number of matches to skip.
+     * @param limit The largest number of matches to return.
+     * @return The loaded tasks that match the keyword search, after the offset.
+     */
+    public List<Task> findLoadedTasks(String keyword, int offset, int limit) {
+        return parallelSearch.find(getLoadedTasks().toArray(new Task[0]), keyword, offset, limit);
+    }
+
+    /**
+     * Finds tasks whose description contains the given words as whole words, ignoring case.
+     * The first query builds a token index, which add and remove then keep up to date.
+     * @param words The words to search for, separated by spaces or punctuation.
+     * @param isMatchAll Whether a task must contain every word, rather than any of them.
+     * @return The matching tasks, in list order.
+     */
+    public List<Task> findTasksByWords(String words, boolean isMatchAll) {
+        awaitLoaded();
+        if (tokenIndex == null) {
+            tokenIndex = new TokenIndex();
+            for (Task task : tasks) {
+                tokenIndex.add(task);
+            }
+        }
+        List<String> tokens = TokenIndex.tokenize(words);
+        return isMatchAll ? tokenIndex.findAll(tokens) : tokenIndex.findAny(tokens);
+    }
+
+    /**
+     * Finds tasks containing the given words among those loaded so far, by scanning them.
+     * @param words The words to search for, separated by spaces or punctuation.
+     * @param isMatchAll Whether a task must contain every word, rather than any of them.
+     * @return The matching loaded tasks, in list order.
+     */
+    public List<Task> findLoadedTasksByWords(String words, boolean isMatchAll) {
+        List<String> tokens = TokenIndex.tokenize(words);
+        return getLoadedTasks().stream()
+                .filter(task -> TokenIndex.matches(task, tokens, isMatchAll))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Finds the deadlines due at or before the given time.
+     * The first date query builds the deadline and event indexes, which add and remove then keep up to date.
+     * @param before The latest due time to include.
+     * @return The deadlines, earliest first.
+     */
+    public List<Task> findDeadlinesDue(LocalDateTime before) {
+        buildTimeIndexes();
+        List<Task> result = new ArrayList<>();
+        for (Set<Deadline> deadlines : deadlineIndex.headMap(before, true).values()) {
+            result.addAll(deadlines);
+        }
+        return result;
+    }
+
+    /**
+     * Finds the events that take place during any part of the given day.
+     * @param date The day to look up.
+     * @return The events, ordered by start time.
+     */
+    public List<Task> findEventsOn(LocalDate date) {
+        buildTimeIndexes();
+        return new ArrayList<>(eventIndex.findOverlapping(date.atStartOfDay(), date.plusDays(1).atStartOfDay()));
+    }
+
+    /**
+     * Finds the other events in the list that overlap the given event.
+     * @param event The event to check.
+     * @return The overlapping events, ordered by start time.
+     */
+    public List<Task> findClashes(Event event) {
+        buildTimeIndexes();
+        List<Task> clashes = new ArrayList<>();
+        for (Event other : eventIndex.findOverlapping(event.getFrom(), event.getTo())) {
+            if (other != event) {
+                clashes.add(other);
+            }
+        }
+        return clashes;
+    }
+
+    /**
+     * Finds every pair of overlapping events in the list.
+     * @return Each event that overlaps a later-starting event, mapped to those later events.
+     */
+    public Map<Event, List<Event>> findConflicts() {
+        buildTimeIndexes();
+        return eventIndex.findConflicts();
+    }
+
+    private void buildTimeIndexes() {
+        awaitLoaded();
+        if (deadlineIndex == null) {
+            deadlineIndex = new TreeMap<>();
+            eventIndex = new EventIntervalTree();
+            for (Task task : tasks) {
+                addToTimeIndexes(task);
+            }
+        }
+    }
+
+    private void addToTimeIndexes(Task task) {
+        if (deadlineIndex == null) {
+            return;
+        }
+        if (task instanceof Deadline) {
+            Deadline deadline = (Deadline) task;
+            deadlineIndex.computeIfAbsent(deadline.getBy(), by -> new LinkedHashSet<>()).add(deadline);
+        } else if (task instanceof Event) {
+            eventIndex.add((Event) task);
+        }
+    }
+
+    private void removeFromTimeIndexes(Task task) {
+        if (deadlineIndex == null) {
+            return;
+        }
+        if (task instanceof Deadline) {
+            Deadline deadline = (Deadline) task;
+            Set<Deadline> deadlines = deadlineIndex.get(deadline.getBy());
+            if (deadlines != null && deadlines.remove(deadline) && deadlines.isEmpty()) {
+                deadlineIndex.remove(deadline.getBy());
+            }
+        } else if (task instanceof Event) {
+            eventIndex.remove((Event) task);
+        }
+    }
+}
+
+
+/**
+ * An immutable copy of a TaskList at one version, which any thread can read while the list keeps changing.
+ * Tasks are shared with the list rather than copied, so the status of each task is captured when the
+ * snapshot is taken and should be read through {@link #isDone(int)} and {@link #getDisplay(int)}.
+ */
+class TaskSnapshot extends AbstractList<Task> implements RandomAccess {
+    private final long version;
+    private final Task[] tasks;
+    private final boolean[] statuses;
+
+    /**
+     * Captures the given tasks and their current statuses.
+     * @param version The version of the list the tasks were taken from.
+     * @param tasks The tasks, in list order. The array must not be changed afterwards.
+     */
+    TaskSnapshot(long version, Task[] tasks) {
+        this.version = version;
+        this.tasks = tasks;
+        this.statuses = new boolean[tasks.length];
+        for (int i = 0; i < tasks.length; i++) {
+            statuses[i] = tasks[i].isDone;
+        }
+    }
+
+    /**
+     * Returns the version of the list this snapshot was taken at. Later snapshots have higher versions.
+     * @return The version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public Task get(int index) {
+        return tasks[index];
+    }
+
+    @Override
+    public int size() {
+        return tasks.length;
+    }
+
+    /**
+     * Checks whether a task was done when the snapshot was taken.
+     * @param index The position of the task.
+     * @return The status of the task in this snapshot.
+     */
+    public boolean isDone(int index) {
+        return statuses[index];
+    }
+
+    /**
+     * Returns a task as it is displayed with its status in this snapshot.
+     * @param index The position of the task.
+     * @return The status icon followed by the description.
+     */
+    public String getDisplay(int index) {
+        return tasks[index].getDisplay(statuses[index]);
+    }
+
+    /**
+     * Returns the array behind the snapshot, for scans that must not copy it. Callers must not change it.
+     * @return The tasks, in list order.
+     */
+    Task[] getTaskArray() {
+        return tasks;
+    }
+}
+
+/**
+ * Holds the tasks of a TaskList in order, as an implicit treap: a balanced binary tree ordered by position,
+ * where each node knows the size of its subtree. Getting, inserting and removing by position, and finding
+ * the position of a task, all take O(log n) instead of shifting an array.
+ */
+class TaskSequence extends AbstractList<Task> {
+    private final Map<Task, Node> nodes = new IdentityHashMap<>();
+    private final Random random = new Random();
+    private Node root;
+
+    private static class Node {
+        private final Task task;
+        private final int priority;
+        private Node left;
+        private Node right;
+        private Node parent;
+        private int size = 1;
+
+        private Node(Task task, int priority) {
+            this.task = task;
+            this.priority = priority;
+        }
+    }
+
+    /**
+     * Creates a sequence holding the given tasks in order, building the tree in linear time.
+     *
+     * @param tasks The initial tasks.
+     */
+    TaskSequence(List<Task> tasks) {
+        List<Node> rightSpine = new ArrayList<>();
+        for (Task task : tasks) {
+            Node node = newNode(task);
+            Node last = null;
+            while (!rightSpine.isEmpty() && rightSpine.get(rightSpine.size() - 1).priority < node.priority) {
+                last = rightSpine.remove(rightSpine.size() - 1);
+            }
+            node.left = last;
+            if (!rightSpine.isEmpty()) {
+                rightSpine.get(rightSpine.size() - 1).right = node;
+            }
+            rightSpine.add(node);
+        }
+        root = rightSpine.isEmpty() ? null : rightSpine.get(0);
+        if (root != null) {
+            updateAll(root);
+            root.parent = null;
+        }
+    }
+
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    @Override
+    public Task get(int index) {
+        return nodeAt(index).task;
+    }
+
+    @Override
+    public void add(int index, Task task) {
+        if (index < 0 || index > size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size());
+        }
+        Node[] parts = split(root, index);
+        root = merge(merge(parts[0], newNode(task)), parts[1]);
+        root.parent = null;
+        modCount++;
+    }
+
+    @Override
+    public Task remove(int index) {
+        Node node = nodeAt(index);
+        Node[] head = split(root, index);
+        Node[] tail = split(head[1], 1);
+        root = merge(head[0], tail[1]);
+        if (root != null) {
+            root.parent = null;
+        }
+        nodes.remove(node.task);
+        modCount++;
+        return node.task;
+    }
+
+    /**
+     * Finds the position of a task by walking up from its node.
+     *
+     * @param o The task to look for.
+     * @return The position of the task, or -1 if it is not in the sequence.
+     */
+    @Override
+    public int indexOf(Object o) {
+        Node node = nodes.get(o);
+        if (node == null) {
+            return -1;
+        }
+        int index = size(node.left);
+        for (; node.parent != null; node = node.parent) {
+            if (node == node.parent.right) {
+                index += size(node.parent.left) + 1;
+            }
+        }
+        return index;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return nodes.containsKey(o);
+    }
+
+    @Override
+    public Iterator<Task> iterator() {
+        return iterator(0);
+    }
+
+    /**
+     * Iterates over the tasks in order, starting at the given position.
+     * Finding the first task takes O(log n), and each step after it O(1) on average.
+     *
+     * @param index The position of the first task.
+     * @return An iterator over the tasks from that position to the end.
+     */
+    public Iterator<Task> iterator(int index) {
+        Node first = index == size() ? null : nodeAt(index);
+        return new Iterator<>() {
+            private Node next = first;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Task next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Node current = next;
+                if (current.right != null) {
+                    next = leftmost(current.right);
+                } else {
+                    Node child = current;
+                    next = current.parent;
+                    while (next != null && child == next.right) {
+                        child = next;
+                        next = next.parent;
+                    }
+                }
+                return current.task;
+            }
+        };
+    }
+
+    private Node newNode(Task task) {
+        Node node = new Node(task, random.nextInt());
+        nodes.put(task, node);
+        return node;
+    }
+
+    private Node nodeAt(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size());
+        }
+        Node node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static Node leftmost(Node node) {
+        while (node != null && node.left != null) {
+            node = node.left;
+        }
+        return node;
+    }
+
+    /**
+     * Recomputes the size of a node and points its children back at it.
+     */
+    private static Node update(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+        if (node.left != null) {
+            node.left.parent = node;
+        }
+        if (node.right != null) {
+            node.right.parent = node;
+        }
+        return node;
+    }
+
+    private static void updateAll(Node node) {
+        if (node.left != null) {
+            updateAll(node.left);
+        }
+        if (node.right != null) {
+            updateAll(node.right);
+        }
+        update(node);
+    }
+
+    private static Node merge(Node first, Node second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        if (first.priority > second.priority) {
+            first.right = merge(first.right, second);
+            return update(first);
+        }
+        second.left = merge(first, second.left);
+        return update(second);
+    }
+
+    /**
+     * Splits a tree into its first {@code count} nodes and the rest.
+     */
+    private static Node[] split(Node node, int count) {
+        if (node == null) {
+            return new Node[2];
+        }
+        if (size(node.left) >= count) {
+            Node[] parts = split(node.left, count);
+            node.left = parts[1];
+            parts[1] = update(node);
+            return parts;
+        }
+        Node[] parts = split(node.right, count - size(node.left) - 1);
+        node.right = parts[0];
+        parts[0] = update(node);
+        return parts;
+    }
+}
+
+/**
+ * Maps each word of a task's display description to the tasks containing it, so that whole-word
+ * queries are answered from posting lists instead of by scanning every description.
+ * Tasks are only ever appended to or removed from a TaskList, so each posting list keeps its tasks
+ * in list order simply by remembering the order they were added in.
+ */
+class TokenIndex {
+    private final Map<String, LinkedHashSet<Task>> postings = new HashMap<>();
+    private final Map<Task, Long> order = new IdentityHashMap<>();
+    private long nextOrder;
+
+    /**
+     * Splits text into lowercase words, treating every character that is not a letter or digit as a separator.
+     *
+     * @param text The text to split.
+     * @return The distinct words of the text, in the order they first appear.
+     */
+    public static List<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean isWordCharacter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (isWordCharacter && start < 0) {
+                start = i;
+            } else if (!isWordCharacter && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase());
+                start = -1;
+            }
+        }
+        return new ArrayList<>(tokens);
+    }
+
+    /**
+     * Checks a single task against the query words without using the index.
+     *
+     * @param task The task to check.
+     * @param tokens The query words, as returned by {@link #tokenize(String)}.
+     * @param isMatchAll Whether the task must contain every word, rather than any of them.
+     * @return true if the task matches.
+     */
+    public static boolean matches(Task task, List<String> tokens, boolean isMatchAll) {
+        List<String> taskTokens = tokenize(task.getDescription());
+        return isMatchAll
+                ? !tokens.isEmpty() && taskTokens.containsAll(tokens)
+                : tokens.stream().anyMatch(taskTokens::contains);
+    }
+
+    /**
+     * Adds a task after every task already in the index.
+     *
+     * @param task The task to add.
+     */
+    public void add(Task task) {
+        order.put(task, nextOrder++);
+        for (String token : tokenize(task.getDescription())) {
+            postings.computeIfAbsent(token, key -> new LinkedHashSet<>()).add(task);
+        }
+    }
+
+    /**
+     * Removes a task from every posting list it is in.
+     *
+     * @param task The task to remove.
+     */
+    public void remove(Task task) {
+        if (order.remove(task) == null) {
+            return;
+        }
+        for (String token : tokenize(task.getDescription())) {
+            Set<Task> posting = postings.get(token);
+            if (posting != null) {
+                posting.remove(task);
+                if (posting.isEmpty()) {
+                    postings.remove(token);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the tasks containing every query word by intersecting their posting lists.
+     * The shortest list is walked, and each of its tasks is looked up in the others, starting with the shortest.
+     *
+     * @param tokens The query words.
+     * @return The matching tasks, in list order.
+     */
+    public List<Task> findAll(List<String> tokens) {
+        List<Set<Task>> lists = new ArrayList<>();
+        for (String token : tokens) {
+            Set<Task> posting = postings.get(token);
+            if (posting == null) {
+                return new ArrayList<>();
+            }
+            lists.add(posting);
+        }
+        if (lists.isEmpty()) {
+            return new ArrayList<>();
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+        List<Task> result = new ArrayList<>();
+        for (Task task : lists.get(0)) {
+            boolean isInAll = true;
+            for (int i = 1; i < lists.size() && isInAll; i++) {
+                isInAll = lists.get(i).contains(task);
+            }
+            if (isInAll) {
+                result.add(task);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the tasks containing any of the query words by merging their posting lists.
+     *
+     * @param tokens The query words.
+     * @return The matching tasks, in list order.
+     */
+    public List<Task> findAny(List<String> tokens) {
+        Set<Task> union = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (String token : tokens) {
+            union.addAll(postings.getOrDefault(token, new LinkedHashSet<>()));
+        }
+        List<Task> result = new ArrayList<>(union);
+        result.sort(Comparator.comparingLong(order::get));
+        return result;
+    }
+}
+/**
+ * Indexes every three-character substring of each task's lowercase display description, so that substring
+ * searches only check the tasks containing all of the keyword's trigrams instead of every task.
+ * Each task gets an ordinal in the order it was added, which is also its order in the list, and posting
+ * lists hold ordinals in ascending order. Removed tasks leave stale ordinals behind until enough of them
+ * pile up, and then the index is rebuilt from the live tasks.
+ */
+class TrigramIndex {
+    public static final int GRAM_LENGTH = 3;
+    private static final int MIN_REBUILD_SIZE = 1024;
+
+    private final Map<Long, Posting> postings = new HashMap<>();
+    private final Map<Task, Integer> ordinals = new IdentityHashMap<>();
+    private Task[] tasks = new Task[16];
+    private int nextOrdinal;
+    private int removedCount;
+
+    /**
+     * A growable, ascending list of task ordinals.
+     */
+    private static class Posting {
+        private int[] ordinals = new int[2];
+        private int size;
+
+        private void add(int ordinal) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size + (size >> 1) + 1);
+            }
+            ordinals[size++] = ordinal;
+        }
+
+        private int last() {
+            return size == 0 ? -1 : ordinals[size - 1];
+        }
+    }
+
+    /**
+     * Adds a task after every task already in the index.
+     *
+     * @param task The task to add.
+     */
+    public void add(Task task) {
+        if (nextOrdinal == tasks.length) {
+            tasks = Arrays.copyOf(tasks, tasks.length * 2);
+        }
+        int ordinal = nextOrdinal++;
+        tasks[ordinal] = task;
+        ordinals.put(task, ordinal);
+        String text = task.getDescription().toLowerCase();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            Posting posting = postings.computeIfAbsent(key(text, i), key -> new Posting());
+            // Ordinals only grow, so a trigram seen earlier in the same description is already at the end.
+            if (posting.last() != ordinal) {
+                posting.add(ordinal);
+            }
+        }
+    }
+
+    /**
+     * Removes a task from the index.
+     *
+     * @param task The task to remove.
+     */
+    public void remove(Task task) {
+        Integer ordinal = ordinals.remove(task);
+        if (ordinal == null) {
+            return;
+        }
+        tasks[ordinal] = null;
+        removedCount++;
+        if (removedCount >= MIN_REBUILD_SIZE && removedCount > ordinals.size()) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Finds the tasks whose lowercase display description contains the keyword.
+     *
+     * @param lowerCaseKeyword The lowercase keyword, at least three characters long.
+     * @param maxResults The number of matches after which the search stops.
+     * @return The first matching tasks, in list order.
+     */
+    public List<Task> find(String lowerCaseKeyword, int maxResults) {
+        List<Posting> lists = new ArrayList<>();
+        for (int i = 0; i + GRAM_LENGTH <= lowerCaseKeyword.length(); i++) {
+            Posting posting = postings.get(key(lowerCaseKeyword, i));
+            if (posting == null) {
+                return new ArrayList<>();
+            }
+            lists.add(posting);
+        }
+        lists.sort(Comparator.comparingInt(posting -> posting.size));
+        Posting shortest = lists.get(0);
+        int[] cursors = new int[lists.size()];
+        List<Task> result = new ArrayList<>();
+        for (int i = 0; i < shortest.size && result.size() < maxResults; i++) {
+            int ordinal = shortest.ordinals[i];
+            Task task = tasks[ordinal];
+            if (task != null && isInAll(lists, cursors, ordinal)
+                    && task.getDescription().toLowerCase().contains(lowerCaseKeyword)) {
+                result.add(task);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether every other posting list holds the ordinal, moving each list's cursor forward
+     * past smaller ordinals with a galloping search.
+     */
+    private static boolean isInAll(List<Posting> lists, int[] cursors, int ordinal) {
+        for (int j = 1; j < lists.size(); j++) {
+            Posting posting = lists.get(j);
+            int low = cursors[j];
+            int step = 1;
+            while (low + step < posting.size && posting.ordinals[low + step] < ordinal) {
+                low += step;
+                step <<= 1;
+            }
+            int high = Math.min(low + step + 1, posting.size);
+            int position = Arrays.binarySearch(posting.ordinals, low, high, ordinal);
+            if (position < 0) {
+                cursors[j] = -position - 1;
+                return false;
+            }
+            cursors[j] = position;
+        }
+        return true;
+    }
+
+    private void rebuild() {
+        Task[] live = new Task[ordinals.size()];
+        int count = 0;
+        for (int i = 0; i < nextOrdinal; i++) {
+            if (tasks[i] != null) {
+                live[count++] = tasks[i];
+            }
+        }
+        postings.clear();
+        ordinals.clear();
+        tasks = new Task[Math.max(16, live.length)];
+        nextOrdinal = 0;
+        removedCount = 0;
+        for (Task task : live) {
+            add(task);
+        }
+    }
+
+    private static long key(String text, int start) {
+        return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+    }
+
+    /**
+     * Estimates the memory held by the index, counting object headers, map entries and boxed keys.
+     *
+     * @return The estimated size of the index in bytes.
+     */
+    public long estimateBytes() {
+        long bytes = 16L + 8L * tasks.length;
+        bytes += ordinals.size() * (32L + 16);
+        for (Posting posting : postings.values()) {
+            bytes += 48 + 24 + 16 + 16 + 4L * posting.ordinals.length;
+        }
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        int taskCount = ordinals.size();
+        long bytes = estimateBytes();
+        return String.format("Trigram index: %d tasks, %d trigrams, about %d KB (%.0f bytes per task)",
+                taskCount, postings.size(), bytes / 1024, taskCount == 0 ? 0.0 : (double) bytes / taskCount);
+    }
+}
+
+
+/**
+ * Holds events in a treap ordered by start time, where each node also records the latest end time in its
+ * subtree. Subtrees that end before a time range, or start after it, are skipped, so finding the events
+ * that overlap a range takes O(log n + k) for k matching events.
+ * Two events overlap when each starts before the other ends; events that only touch do not overlap.
+ */
+class EventIntervalTree {
+    private static final Comparator<Event> ORDER =
+            Comparator.comparing(Event::getFrom).thenComparingInt(Event::getId);
+
+    private final Random random = new Random();
+    private Node root;
+    private int size;
+
+    private static class Node {
+        private final Event event;
+        private final int priority;
+        private Node left;
+        private Node right;
+        private LocalDateTime maxTo;
+
+        private Node(Event event, int priority) {
+            this.event = event;
+            this.priority = priority;
+            this.maxTo = event.getTo();
+        }
+    }
+
+    /**
+     * Adds an event to the tree. The event's ID must not change while it is in the tree.
+     *
+     * @param event The event to add.
+     */
+    public void add(Event event) {
+        root = insert(root, new Node(event, random.nextInt()));
+        size++;
+    }
+
+    /**
+     * Removes an event from the tree.
+     *
+     * @param event The event to remove.
+     * @return true if the event was in the tree.
+     */
+    public boolean remove(Event event) {
+        int initialSize = size;
+        root = delete(root, event);
+        return size < initialSize;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the events that overlap the given time range.
+     *
+     * @param start The start of the range.
+     * @param end The end of the range.
+     * @return The overlapping events, ordered by start time.
+     */
+    public List<Event> findOverlapping(LocalDateTime start, LocalDateTime end) {
+        List<Event> result = new ArrayList<>();
+        collect(root, start, end, result);
+        return result;
+    }
+
+    /**
+     * Finds every pair of overlapping events. Each event is looked up once, so this takes
+     * O(n log n + k) for n events and k overlapping pairs.
+     *
+     * @return Each event that overlaps a later-starting event, mapped to those later events, ordered by start time.
+     */
+    public Map<Event, List<Event>> findConflicts() {
+        Map<Event, List<Event>> conflicts = new LinkedHashMap<>();
+        List<Event> events = new ArrayList<>(size);
+        collectAll(root, events);
+        for (Event event : events) {
+            List<Event> later = new ArrayList<>();
+            for (Event other : findOverlapping(event.getFrom(), event.getTo())) {
+                if (ORDER.compare(other, event) > 0) {
+                    later.add(other);
+                }
+            }
+            if (!later.isEmpty()) {
+                conflicts.put(event, later);
+            }
+        }
+        return conflicts;
+    }
+
+    private static void collect(Node node, LocalDateTime start, LocalDateTime end, List<Event> result) {
+        if (node == null || !node.maxTo.isAfter(start)) {
+            return;
+        }
+        collect(node.left, start, end, result);
+        if (!node.event.getFrom().isBefore(end)) {
+            return;
+        }
+        if (node.event.getTo().isAfter(start)) {
+            result.add(node.event);
+        }
+        collect(node.right, start, end, result);
+    }
+
+    private static void collectAll(Node node, List<Event> result) {
+        if (node != null) {
+            collectAll(node.left, result);
+            result.add(node.event);
+            collectAll(node.right, result);
+        }
+    }
+
+    private Node insert(Node node, Node newNode) {
+        if (node == null) {
+            return newNode;
+        }
+        if (newNode.priority > node.priority) {
+            Node[] halves = split(node, newNode.event);
+            newNode.left = halves[0];
+            newNode.right = halves[1];
+            update(newNode);
+            return newNode;
+        }
+        if (ORDER.compare(newNode.event, node.event) < 0) {
+            node.left = insert(node.left, newNode);
+        } else {
+            node.right = insert(node.right, newNode);
+        }
+        update(node);
+        return node;
+    }
+
+    private Node delete(Node node, Event event) {
+        if (node == null) {
+            return null;
+        }
+        if (node.event == event) {
+            size--;
+            return merge(node.left, node.right);
+        }
+        if (ORDER.compare(event, node.event) < 0) {
+            node.left = delete(node.left, event);
+        } else {
+            node.right = delete(node.right, event);
+        }
+        update(node);
+        return node;
+    }
+
+    /**
+     * Splits a subtree into the events ordered before the given event and the rest.
+     */
+    private static Node[] split(Node node, Event event) {
+        if (node == null) {
+            return new Node[] {null, null};
+        }
+        if (ORDER.compare(node.event, event) < 0) {
+            Node[] halves = split(node.right, event);
+            node.right = halves[0];
+            update(node);
+            return new Node[] {node, halves[1]};
+        }
+        Node[] halves = split(node.left, event);
+        node.left = halves[1];
+        update(node);
+        return new Node[] {halves[0], node};
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private static void update(Node node) {
+        LocalDateTime maxTo = node.event.getTo();
+        if (node.left != null && node.left.maxTo.isAfter(maxTo)) {
+            maxTo = node.left.maxTo;
+        }
+        if (node.right != null && node.right.maxTo.isAfter(maxTo)) {
+            maxTo = node.right.maxTo;
+        }
+        node.maxTo = maxTo;
+    }
+}
+
+/**
+ * Scans tasks for a keyword on a fork-join pool. Lists shorter than the threshold are scanned on the calling
+ * thread. Longer lists are split into chunks, and the chunks are scanned in parallel a batch at a time,
+ * in list order, so matches keep their order and the scan stops after the batch that fills the limit.
+ */
+class ParallelSearch {
+    static final int DEFAULT_THRESHOLD = 50_000;
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    private ForkJoinPool pool;
+    private int threshold;
+
+    /**
+     * Creates a ParallelSearch that scans on the common fork-join pool.
+     */
+    public ParallelSearch() {
+        this(ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Creates a ParallelSearch.
+     *
+     * @param pool The pool the chunks are scanned on.
+     * @param threshold The number of tasks below which the list is scanned on the calling thread.
+     */
+    public ParallelSearch(ForkJoinPool pool, int threshold) {
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Finds the tasks whose description contains the keyword, ignoring case.
+     *
+     * @param tasks The tasks to scan.
+     * @param keyword The keyword to search for.
+     * @param offset The number of matches to skip.
+     * @param limit The largest number of matches to return.
+     * @return The matches after the offset, in list order.
+     */
+    public List<Task> find(Task[] tasks, String keyword, int offset, int limit) {
+        int[] positions = findPositions(tasks, keyword, offset, limit);
+        List<Task> matches = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            matches.add(tasks[position]);
+        }
+        return matches;
+    }
+
+    /**
+     * Finds the positions of the tasks whose description contains the keyword, ignoring case, so that a
+     * caller scanning a snapshot can show each match with its status in that snapshot.
+     *
+     * @param tasks The tasks to scan.
+     * @param keyword The keyword to search for.
+     * @param offset The number of matches to skip.
+     * @param limit The largest number of matches to return.
+     * @return The positions of the matches after the offset, in ascending order.
+     */
+    public int[] findPositions(Task[] tasks, String keyword, int offset, int limit) {
+        String lowerCaseKeyword = keyword.toLowerCase();
+        int wanted = (int) Math.min(Integer.MAX_VALUE, (long) offset + limit);
+        List<Integer> matches = new ArrayList<>();
+        if (tasks.length < threshold) {
+            scan(tasks, 0, tasks.length, lowerCaseKeyword, wanted, matches);
+        } else {
+            int chunkCount = (tasks.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            int batchSize = limit == Integer.MAX_VALUE ? chunkCount : pool.getParallelism() * 2;
+            for (int chunk = 0; chunk < chunkCount && matches.size() < wanted; chunk += batchSize) {
+                int lastChunk = Math.min(chunk + batchSize, chunkCount);
+                matches.addAll(pool.invoke(new ScanTask(tasks, chunk, lastChunk, lowerCaseKeyword, wanted)));
+            }
+        }
+        int end = Math.min(matches.size(), wanted);
+        int[] positions = new int[Math.max(0, end - offset)];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = matches.get(offset + i);
+        }
+        return positions;
+    }
+
+    /**
+     * Adds the positions of the tasks in a range that contain the keyword, stopping once the list holds
+     * the wanted number.
+     */
+    private static void scan(Task[] tasks, int start, int end, String lowerCaseKeyword, int wanted,
+            List<Integer> matches) {
+        for (int i = start; i < end && matches.size() < wanted; i++) {
+            if (tasks[i].getDescription().toLowerCase().contains(lowerCaseKeyword)) {
+                matches.add(i);
+            }
+        }
+    }
+
+    /**
+     * Scans a range of chunks, splitting it in two while it holds more than one chunk.
+     * Each chunk stops after the wanted number of matches, since no later match can be returned.
+     */
+    private static class ScanTask extends RecursiveTask<List<Integer>> {
+        private static final long serialVersionUID = 1L;
+
+        private final Task[] tasks;
+        private final int firstChunk;
+        private final int lastChunk;
+        private final String lowerCaseKeyword;
+        private final int wanted;
+
+        ScanTask(Task[] tasks, int firstChunk, int lastChunk, String lowerCaseKeyword, int wanted) {
+            this.tasks = tasks;
+            this.firstChunk = firstChunk;
+            this.lastChunk = lastChunk;
+            this.lowerCaseKeyword = lowerCaseKeyword;
+            this.wanted = wanted;
+        }
+
+        @Override
+        protected List<Integer> compute() {
+            if (lastChunk - firstChunk > 1) {
+                int middle = (firstChunk + lastChunk) >>> 1;
+                ScanTask right = new ScanTask(tasks, middle, lastChunk, lowerCaseKeyword, wanted);
+                right.fork();
+                List<Integer> left = new ScanTask(tasks, firstChunk, middle, lowerCaseKeyword, wanted).compute();
+                left.addAll(right.join());
+                return left;
+            }
+            List<Integer> matches = new ArrayList<>();
+            int start = firstChunk * CHUNK_SIZE;
+            scan(tasks, start, Math.min(start + CHUNK_SIZE, tasks.length), lowerCaseKeyword, wanted, matches);
+            return matches;
+        }
+    }
+}
+
+enum TaskType {
+    TODO,
+    DEADLINE,
+    EVENT
+}
+
+/**
+ * Represents a general task with a description, completion status, and type.
+ */
+class Task {
+    /** Formats dates and times for display. DateTimeFormatter is immutable, so one instance is shared. */
+    static final DateTimeFormatter DISPLAY_FORMATTER = DateTimeFormatter.ofPattern("MMM dd yyyy, HH:mm");
+    /** Formats dates and times in stored records. */
+    static final DateTimeFormatter STORAGE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    protected String description;
+    protected boolean isDone;
+    protected TaskType taskType;
+    private int id;
+    // Display and stored forms are cached separately for each status, so a reader formatting a task with the
+    // status it saw in a TaskSnapshot can never cache a form that disagrees with the task's current status.
+    private String cachedDescription;
+    private String cachedOpenDisplay;
+    private String cachedDoneDisplay;
+    private String cachedOpenRecord;
+    private String cachedDoneRecord;
+
+    /**
+     * Constructs a new Task with the specified description and type.
+     * Initially, the task is not completed.
+     *
+     * @param description Description of the task.
+     * @param taskType Type of the task (e.g., TODO, DEADLINE, EVENT).
+     */
+    public Task(String description, TaskType taskType) {
+        this.description = description;
+        this.isDone = false;
+        this.taskType = taskType;
+    }
+
+    /**
+     * Gets the status icon representing the completion status of the task.
+     *
+     * @return A string representing the status icon.
+     */
+    public String getStatusIcon() {
+        return getStatusIcon(isDone);
+    }
+
+    private String getStatusIcon(boolean isDone) {
+        return "[" + taskType + "]" + (isDone ? "[X] " : "[ ] ");
+    }
+
+    /**
+     * Gets the description of the task as it is displayed, including any date suffix.
+     *
+     * @return The task's description.
+     */
+    public String getDescription() {
+        if (cachedDescription == null) {
+            cachedDescription = description + getDisplaySuffix();
+        }
+        return cachedDescription;
+    }
+
+    /**
+     * Gets the description of the task as the user typed it. This is the form that is stored.
+     *
+     * @return The task's raw description.
+     */
+    public String getRawDescription() {
+        return description;
+    }
+
+    /**
+     * Gets the suffix that is appended to the raw description for display.
+     *
+     * @return The display suffix, or an empty string if the task has none.
+     */
+    protected String getDisplaySuffix() {
+        return "";
+    }
+
+    /**
+     * Removes trailing copies of the display suffix from the raw description.
+     * Older versions stored the display form, so every save added another copy.
+     *
+     * @return The number of characters removed.
+     */
+    public int stripDisplaySuffixes() {
+        String suffix = getDisplaySuffix();
+        int originalLength = description.length();
+        while (!suffix.isEmpty() && description.endsWith(suffix)) {
+            description = description.substring(0, description.length() - suffix.length());
+        }
+        invalidateCache();
+        return originalLength - description.length();
+    }
+
+    /**
+     * Marks the task as done.
+     */
+    public void markAsDone() {
+        isDone = true;
+    }
+
+    /**
+     * Marks the task as not done.
+     */
+    public void markAsNotDone() {
+        isDone = false;
+    }
+
+    /**
+     * Gets the permanent ID of the task, which stays the same when other tasks are deleted.
+     *
+     * @return The ID, or 0 if the task has not been given one yet.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Gives the task its permanent ID. Only TaskList and Storage assign IDs.
+     *
+     * @param id The ID of the task.
+     */
+    void setId(int id) {
+        this.id = id;
+        cachedOpenRecord = null;
+        cachedDoneRecord = null;
+    }
+
+    /**
+     * Returns the stored form of the task with the given status, as last cached by
+     * {@link #cacheRecord(boolean, String)}.
+     *
+     * @param isDone The status the record was formatted with.
+     * @return The cached record, or null if the task has changed since it was cached.
+     */
+    String getCachedRecord(boolean isDone) {
+        return isDone ? cachedDoneRecord : cachedOpenRecord;
+    }
+
+    /**
+     * Caches the stored form of the task with the given status until the task next changes.
+     *
+     * @param isDone The status the record was formatted with.
+     * @param record The stored form of the task.
+     */
+    void cacheRecord(boolean isDone, String record) {
+        if (isDone) {
+            cachedDoneRecord = record;
+        } else {
+            cachedOpenRecord = record;
+        }
+    }
+
+    /**
+     * Drops the cached display and stored forms after the description changes.
+     */
+    private void invalidateCache() {
+        cachedDescription = null;
+        cachedOpenDisplay = null;
+        cachedDoneDisplay = null;
+        cachedOpenRecord = null;
+        cachedDoneRecord = null;
+    }
+
+    /**
+     * Returns the task as it is displayed with the given status, which may differ from its current status
+     * when the task is read from a {@link TaskSnapshot}.
+     *
+     * @param isDone The status to display.
+     * @return The status icon followed by the description.
+     */
+    public String getDisplay(boolean isDone) {
+        String display = isDone ? cachedDoneDisplay : cachedOpenDisplay;
+        if (display == null) {
+            display = getStatusIcon(isDone) + getDescription();
+            if (isDone) {
+                cachedDoneDisplay = display;
+            } else {
+                cachedOpenDisplay = display;
+            }
+        }
+        return display;
+    }
+
+    /**
+     * Returns a string representation of the task, including its status icon and description.
+     *
+     * @return String representation of the task.
+     */
+    @Override
+    public String toString() {
+        return getDisplay(isDone);
+    }
+}
+
+/**
+ * Represents a TODO task with a description.
+ */
+class Todo extends Task {
+    /**
+     * Constructs a new Todo task with the specified description.
+     *
+     * @param description Description of the TODO task.
+     */
+    public Todo(String description) {
+        super(description, TaskType.TODO);
+    }
+}
+
+
+/**
+ * Represents a Deadline task with a description and a deadline date.
+ */
+class Deadline extends Task {
+    protected LocalDateTime by;
+
+    /**
+     * Constructs a new Deadline task with the specified description and deadline date.
+     *
+     * @param description Description of the deadline task.
+     * @param by The deadline date and time.
+     */
+    public Deadline(String description, LocalDateTime by) {
+        super(description, TaskType.DEADLINE);
+        this.by = by;
+    }
+
+    /**
+     * Returns the deadline date that follows the description when it is displayed.
+     *
+     * @return The deadline suffix of the description.
+     */
+    @Override
+    protected String getDisplaySuffix() {
+        return " (by: " + DateTimeCodec.format(by, DateTimeCodec.Layout.DISPLAY) + ")";
+    }
+
+    /**
+     * Gets the deadline date and time of the task.
+     *
+     * @return The deadline date and time.
+     */
+    public LocalDateTime getBy() {
+        return by;
+    }
+}
+
+/**
+ * Represents an Event task with a description, start date/time, and end date/time.
+ */
+class Event extends Task {
+    protected LocalDateTime from;
+    protected LocalDateTime to;
+
+    /**
+     * Constructs a new Event task with the specified description, start date/time, and end date/time.
+     *
+     * @param description Description of the event.
+     * @param from The start date and time of the event.
+     * @param to The end date and time of the event.
+     */
+    public Event(String description, LocalDateTime from, LocalDateTime to) {
+        super(description, TaskType.EVENT);
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Returns the start and end date/time that follow the description when it is displayed.
+     *
+     * @return The timing suffix of the description.
+     */
+    @Override
+    protected String getDisplaySuffix() {
+        StringBuilder suffix = new StringBuilder(" (from: ");
+        DateTimeCodec.append(suffix, from, DateTimeCodec.Layout.DISPLAY).append(" to: ");
+        return DateTimeCodec.append(suffix, to, DateTimeCodec.Layout.DISPLAY).append(')').toString();
+    }
+
+    /**
+     * Gets the start date and time of the event.
+     *
+     * @return The start date and time.
+     */
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    /**
+     * Gets the end date and time of the event.
+     *
+     * @return The end date and time.
+     */
+    public LocalDateTime getTo() {
+        return to;
+    }
+}
+
+
+/**
+ * Parses and prints the three fixed date-time layouts used by commands, the data file and the display,
+ * reading and writing the digits at fixed offsets instead of going through DateTimeFormatter.
+ * Text that does not have the exact shape of its layout, or that names a time the formatter would reject
+ * or adjust, such as February 30, is handed to the layout's formatter, so results always match it.
+ */
+class DateTimeCodec {
+    /**
+     * The fixed layouts, each with the formatter that handles whatever the fast path does not.
+     */
+    enum Layout {
+        /** "yyyy-MM-dd HHmm", the layout of deadlines typed after /by. */
+        INPUT(DateTimeFormatter.ofPattern("yyyy-MM-dd HHmm")),
+        /** "MMM dd yyyy, HH:mm", the layout of events typed after /from and /to, and of dates on display. */
+        DISPLAY(Task.DISPLAY_FORMATTER),
+        /** "yyyy-MM-dd HH:mm", the layout of dates in stored records. */
+        STORAGE(Task.STORAGE_FORMATTER);
+
+        private final DateTimeFormatter formatter;
+
+        Layout(DateTimeFormatter formatter) {
+            this.formatter = formatter;
+        }
+    }
+
+    /** The short month names of the display locale, which the display layout prints and accepts. */
+    private static final String[] MONTHS = new String[12];
+
+    static {
+        DateTimeFormatter monthFormatter = DateTimeFormatter.ofPattern("MMM", Task.DISPLAY_FORMATTER.getLocale());
+        for (Month month : Month.values()) {
+            MONTHS[month.ordinal()] = monthFormatter.format(month);
+        }
+    }
+
+    /**
+     * Parses a date and time in the given layout.
+     *
+     * @param text The text holding the date and time.
+     * @param layout The layout of the text.
+     * @return The date and time.
+     * @throws DateTimeParseException If the text is not a valid date and time in that layout.
+     */
+    public static LocalDateTime parse(CharSequence text, Layout layout) {
+        return parse(text, 0, text.length(), layout);
+    }
+
+    /**
+     * Parses a date and time in the given layout from a region of the text, without copying it.
+     *
+     * @param text The text holding the date and time.
+     * @param start The position of the first character of the date.
+     * @param end The position just after the time.
+     * @param layout The layout of the region.
+     * @return The date and time.
+     * @throws DateTimeParseException If the region is not a valid date and time in that layout.
+     */
+    public static LocalDateTime parse(CharSequence text, int start, int end, Layout layout) {
+        LocalDateTime dateTime = layout == Layout.DISPLAY
+                ? parseDisplay(text, start, end)
+                : parseNumeric(text, start, end, layout == Layout.STORAGE);
+        return dateTime != null ? dateTime : LocalDateTime.parse(text.subSequence(start, end), layout.formatter);
+    }
+
+    /**
+     * Formats a date and time in the given layout.
+     *
+     * @param dateTime The date and time. Seconds are not shown.
+     * @param layout The layout to use.
+     * @return The formatted date and time.
+     */
+    public static String format(LocalDateTime dateTime, Layout layout) {
+        return append(new StringBuilder(18), dateTime, layout).toString();
+    }
+
+    /**
+     * Appends a date and time in the given layout.
+     *
+     * @param out The builder to append to.
+     * @param dateTime The date and time. Seconds are not shown.
+     * @param layout The layout to use.
+     * @return The builder.
+     */
+    public static StringBuilder append(StringBuilder out, LocalDateTime dateTime, Layout layout) {
+        int year = dateTime.getYear();
+        if (year < 1 || year > 9999) {
+            return out.append(layout.formatter.format(dateTime));
+        }
+        if (layout == Layout.DISPLAY) {
+            out.append(MONTHS[dateTime.getMonthValue() - 1]).append(' ');
+            appendDigits(out, dateTime.getDayOfMonth(), 2).append(' ');
+            appendDigits(out, year, 4).append(", ");
+            appendDigits(out, dateTime.getHour(), 2).append(':');
+            return appendDigits(out, dateTime.getMinute(), 2);
+        }
+        appendDigits(out, year, 4).append('-');
+        appendDigits(out, dateTime.getMonthValue(), 2).append('-');
+        appendDigits(out, dateTime.getDayOfMonth(), 2).append(' ');
+        appendDigits(out, dateTime.getHour(), 2);
+        if (layout == Layout.STORAGE) {
+            out.append(':');
+        }
+        return appendDigits(out, dateTime.getMinute(), 2);
+    }
+
+    /**
+     * Parses "yyyy-MM-dd HH:mm", or "yyyy-MM-dd HHmm" without the colon.
+     *
+     * @return The date and time, or null if the formatter has to decide.
+     */
+    private static LocalDateTime parseNumeric(CharSequence text, int start, int end, boolean hasColon) {
+        if (end - start != (hasColon ? 16 : 15) || text.charAt(start + 4) != '-' || text.charAt(start + 7) != '-'
+                || text.charAt(start + 10) != ' ' || (hasColon && text.charAt(start + 13) != ':')) {
+            return null;
+        }
+        return of(digits(text, start, 4), digits(text, start + 5, 2), digits(text, start + 8, 2),
+                digits(text, start + 11, 2), digits(text, end - 2, 2));
+    }
+
+    /**
+     * Parses "MMM dd yyyy, HH:mm".
+     *
+     * @return The date and time, or null if the formatter has to decide.
+     */
+    private static LocalDateTime parseDisplay(CharSequence text, int start, int end) {
+        for (int month = 0; month < MONTHS.length; month++) {
+            int rest = start + MONTHS[month].length();
+            if (end - rest == 15 && startsWith(text, start, MONTHS[month]) && text.charAt(rest) == ' '
+                    && text.charAt(rest + 3) == ' ' && text.charAt(rest + 8) == ',' && text.charAt(rest + 9) == ' '
+                    && text.charAt(rest + 12) == ':') {
+                return of(digits(text, rest + 4, 4), month + 1, digits(text, rest + 1, 2),
+                        digits(text, rest + 10, 2), digits(text, rest + 13, 2));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Builds a date and time from fields that are plainly valid.
+     *
+     * @return The date and time, or null if any field is missing or out of range.
+     */
+    private static LocalDateTime of(int year, int month, int day, int hour, int minute) {
+        if (year < 1 || month < 1 || month > 12 || day < 1 || hour < 0 || hour > 23 || minute < 0 || minute > 59
+                || day > Month.of(month).length(Year.isLeap(year))) {
+            return null;
+        }
+        return LocalDateTime.of(year, month, day, hour, minute);
+    }
+
+    /**
+     * Reads a run of ASCII digits.
+     *
+     * @return The number, or -1 if any character is not a digit.
+     */
+    private static int digits(CharSequence text, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean startsWith(CharSequence text, int start, String prefix) {
+        for (int i = 0; i < prefix.length(); i++) {
+            if (text.charAt(start + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static StringBuilder appendDigits(StringBuilder out, int value, int width) {
+        for (int divisor = width == 4 ? 1000 : 10; divisor > 0; divisor /= 10) {
+            out.append((char) ('0' + value / divisor % 10));
+        }
+        return out;
+    }
+}
+
+/**
+ * Keeps the changes made to a TaskList so they can be undone and redone. Each change is the list of edits
+ * one command made, and each edit only records a position, the task involved and, for status changes,
+ * the new status. Versions of the list are therefore never copied: keeping a change costs memory in
+ * proportion to its edits, plus the tasks it removed, which only the history still holds.
+ * The oldest changes are forgotten once the history grows past its memory budget.
+ */
+class TaskHistory {
+    /** The default memory budget of the history, in bytes. */
+    static final long DEFAULT_BUDGET_BYTES = 64L * 1024 * 1024;
+    private static final long EDIT_BYTES = 40;
+    private static final long CHANGE_BYTES = 80;
+
+    private final Deque<Change> undoStack = new ArrayDeque<>();
+    private final Deque<Change> redoStack = new ArrayDeque<>();
+    private List<Edit> pending = new ArrayList<>();
+    private long budgetBytes;
+    private long usedBytes;
+    private int forgottenChanges;
+    private boolean isPaused;
+
+    /**
+     * The kinds of edit a command can make to a TaskList.
+     */
+    enum Kind {
+        ADD,
+        REMOVE,
+        STATUS
+    }
+
+    /**
+     * Records one edit: a task added or removed at a position, or the new status of the task at a position.
+     */
+    static final class Edit {
+        private final Kind kind;
+        private final int position;
+        private final Task task;
+        private final boolean isDone;
+        private final boolean isAppend;
+
+        private Edit(Kind kind, int position, Task task, boolean isDone, boolean isAppend) {
+            this.kind = kind;
+            this.position = position;
+            this.task = task;
+            this.isDone = isDone;
+            this.isAppend = isAppend;
+        }
+
+        /**
+         * Creates an edit that adds a task, noting whether the task went at the end of the list.
+         */
+        static Edit add(int position, Task task, boolean isAppend) {
+            return new Edit(Kind.ADD, position, task, false, isAppend);
+        }
+
+        static Edit remove(int position, Task task) {
+            return new Edit(Kind.REMOVE, position, task, false, false);
+        }
+
+        static Edit status(int position, Task task, boolean isDone) {
+            return new Edit(Kind.STATUS, position, task, isDone, false);
+        }
+
+        /**
+         * Returns the edit that reverts this one.
+         */
+        Edit inverse() {
+            switch (kind) {
+                case ADD:
+                    return remove(position, task);
+                case REMOVE:
+                    return add(position, task, false);
+                default:
+                    return status(position, task, !isDone);
+            }
+        }
+
+        Kind getKind() {
+            return kind;
+        }
+
+        int getPosition() {
+            return position;
+        }
+
+        Task getTask() {
+            return task;
+        }
+
+        boolean isDone() {
+            return isDone;
+        }
+
+        boolean isAppend() {
+            return isAppend;
+        }
+
+        private long estimateBytes() {
+            // A removed task is kept alive by the history alone.
+            return EDIT_BYTES + (kind == Kind.REMOVE ? 64 + 2L * task.getRawDescription().length() : 0);
+        }
+    }
+
+    /**
+     * Records the edits made by one command.
+     */
+    static final class Change {
+        private final String label;
+        private final List<Edit> edits;
+        private final long bytes;
+
+        private Change(String label, List<Edit> edits) {
+            this.label = label;
+            this.edits = edits;
+            long total = CHANGE_BYTES + 2L * label.length();
+            for (Edit edit : edits) {
+                total += edit.estimateBytes();
+            }
+            this.bytes = total;
+        }
+
+        String getLabel() {
+            return label;
+        }
+
+        List<Edit> getEdits() {
+            return edits;
+        }
+
+        long getBytes() {
+            return bytes;
+        }
     }
 
     /**
-     * Finds and returns a list of tasks that contain the specified keyword in their description.
-     * @param keyword The keyword to search for in task descriptions.
-     * @return A list of tasks that match the keyword search.
+     * Creates an empty history.
+     *
+     * @param budgetBytes The most memory the history may use, in bytes.
      */
-    public List<Task> findTasks(String keyword) {
-        String lowerCaseKeyword = keyword.toLowerCase();
-        return tasks.stream()
-                .filter(task -> task.getDescription().toLowerCase().contains(lowerCaseKeyword))
-                .collect(Collectors.toList());
+    TaskHistory(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
     }
-}
-
 
+    void record(Edit edit) {
+        if (!isPaused) {
+            pending.add(edit);
+        }
+    }
 
-enum TaskType {
-    TODO,
-    DEADLINE,
-    EVENT
-}
+    void pause() {
+        isPaused = true;
+    }
 
-/**
- * Represents a general task with a description, completion status, and type.
- */
-class Task {
-    protected String description;
-    protected boolean isDone;
-    protected TaskType taskType;
+    void resume() {
+        isPaused = false;
+    }
 
     /**
-     * Constructs a new Task with the specified description and type.
-     * Initially, the task is not completed.
+     * Closes the edits recorded since the last commit into one change. A new change cannot be followed by
+     * the changes undone before it, so those are dropped.
      *
-     * @param description Description of the task.
-     * @param taskType Type of the task (e.g., TODO, DEADLINE, EVENT).
+     * @param label The command that made the edits.
      */
-    public Task(String description, TaskType taskType) {
-        this.description = description;
-        this.isDone = false;
-        this.taskType = taskType;
+    void commit(String label) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Change change = new Change(label, pending);
+        pending = new ArrayList<>();
+        for (Change undone : redoStack) {
+            usedBytes -= undone.bytes;
+        }
+        redoStack.clear();
+        pushUndo(change);
     }
 
-    /**
-     * Gets the status icon representing the completion status of the task.
-     *
-     * @return A string representing the status icon.
-     */
-    public String getStatusIcon() {
-        return "[" + taskType + "]" + (isDone ? "[X] " : "[ ] ");
+    Change peekUndo() {
+        return undoStack.peekFirst();
     }
 
-    /**
-     * Gets the description of the task.
-     *
-     * @return The task's description.
-     */
-    public String getDescription() {
-        return description;
+    Change peekRedo() {
+        return redoStack.peekFirst();
     }
 
-    /**
-     * Marks the task as done.
-     */
-    public void markAsDone() {
-        isDone = true;
+    Change popUndo() {
+        Change change = undoStack.pollFirst();
+        if (change != null) {
+            usedBytes -= change.bytes;
+        }
+        return change;
     }
 
-    /**
-     * Marks the task as not done.
-     */
-    public void markAsNotDone() {
-        isDone = false;
+    Change popRedo() {
+        Change change = redoStack.pollFirst();
+        if (change != null) {
+            usedBytes -= change.bytes;
+        }
+        return change;
+    }
+
+    void pushUndo(Change change) {
+        undoStack.addFirst(change);
+        usedBytes += change.bytes;
+        trimToBudget();
+    }
+
+    void pushRedo(Change change) {
+        redoStack.addFirst(change);
+        usedBytes += change.bytes;
+        trimToBudget();
     }
 
     /**
-     * Returns a string representation of the task, including its status icon and description.
-     *
-     * @return String representation of the task.
+     * Forgets the oldest changes, redoable ones first, until the history fits its budget.
      */
-    @Override
-    public String toString() {
-        return getStatusIcon() + getDescription();
+    private void trimToBudget() {
+        while (usedBytes > budgetBytes && (!undoStack.isEmpty() || !redoStack.isEmpty())) {
+            Change oldest = !redoStack.isEmpty() ? redoStack.pollLast() : undoStack.pollLast();
+            usedBytes -= oldest.bytes;
+            forgottenChanges++;
+        }
     }
-}
 
-/**
- * Represents a TODO task with a description.
- */
-class Todo extends Task {
     /**
-     * Constructs a new Todo task with the specified description.
+     * Returns the changes that can be undone.
      *
-     * @param description Description of the TODO task.
+     * @return The changes, newest first.
      */
-    public Todo(String description) {
-        super(description, TaskType.TODO);
+    List<Change> getUndoableChanges() {
+        return new ArrayList<>(undoStack);
+    }
+
+    int getRedoableCount() {
+        return redoStack.size();
+    }
+
+    long getUsedBytes() {
+        return usedBytes;
+    }
+
+    long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    int getForgottenChanges() {
+        return forgottenChanges;
     }
 }
 
 
 /**
- * Represents a Deadline task with a description and a deadline date.
+ * Refers to a task either by its current position in the list or by its permanent ID.
  */
-class Deadline extends Task {
-    protected LocalDateTime by;
+class TaskSelector {
+    private final int position;
+    private final int id;
+
+    private TaskSelector(int position, int id) {
+        this.position = position;
+        this.id = id;
+    }
 
     /**
-     * Constructs a new Deadline task with the specified description and deadline date.
+     * Creates a selector for the task at a position.
      *
-     * @param description Description of the deadline task.
-     * @param by The deadline date and time.
+     * @param position The zero-based position of the task.
+     * @return The selector.
      */
-    public Deadline(String description, LocalDateTime by) {
-        super(description, TaskType.DEADLINE);
-        this.by = by;
+    public static TaskSelector atPosition(int position) {
+        return new TaskSelector(position, -1);
     }
 
     /**
-     * Returns the description of the deadline task including the deadline date.
+     * Creates a selector for the task with an ID.
      *
-     * @return Description of the task with its deadline.
+     * @param id The ID of the task.
+     * @return The selector.
      */
-    @Override
-    public String getDescription() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM dd yyyy, HH:mm");
-        return super.getDescription() + " (by: " + formatter.format(by) + ")";
+    public static TaskSelector byId(int id) {
+        return new TaskSelector(-1, id);
     }
 
     /**
-     * Gets the deadline date and time of the task.
+     * Finds the current position of the selected task.
      *
-     * @return The deadline date and time.
+     * @param tasks The task list to look in.
+     * @return The zero-based position of the task.
+     * @throws TalkingCatException If there is no such task.
      */
-    public LocalDateTime getBy() {
-        return by;
+    public int resolve(TaskList tasks) throws TalkingCatException {
+        if (id >= 0) {
+            Task task = tasks.getTaskById(id);
+            if (task == null) {
+                throw new TalkingCatException("There is no task with ID #" + id + ".");
+            }
+            return tasks.indexOf(task);
+        }
+        if (position < 0 || position >= tasks.getSize()) {
+            throw new TalkingCatException("Invalid task number.");
+        }
+        return position;
     }
 }
 
 /**
- * Represents an Event task with a description, start date/time, and end date/time.
+ * Refers to several tasks at once: a comma-separated set of positions, ranges of positions such as 3-7,
+ * and IDs such as #12, or every task. The selection can be narrowed to tasks that are done or not done.
  */
-class Event extends Task {
-    protected LocalDateTime from;
-    protected LocalDateTime to;
+class TaskSelection {
+    private final boolean isAll;
+    private final List<int[]> ranges;
+    private final List<Integer> ids;
+    private final Boolean doneFilter;
 
     /**
-     * Constructs a new Event task with the specified description, start date/time, and end date/time.
+     * Creates a selection.
      *
-     * @param description Description of the event.
-     * @param from The start date and time of the event.
-     * @param to The end date and time of the event.
+     * @param isAll Whether every task is selected.
+     * @param ranges The inclusive, zero-based ranges of positions that are selected.
+     * @param ids The IDs of the tasks that are selected.
+     * @param doneFilter Only tasks with this status are selected, or null to select tasks with either status.
      */
-    public Event(String description, LocalDateTime from, LocalDateTime to) {
-        super(description, TaskType.EVENT);
-        this.from = from;
-        this.to = to;
+    TaskSelection(boolean isAll, List<int[]> ranges, List<Integer> ids, Boolean doneFilter) {
+        this.isAll = isAll;
+        this.ranges = ranges;
+        this.ids = ids;
+        this.doneFilter = doneFilter;
     }
 
     /**
-     * Returns the description of the event including its start and end date/time.
+     * Finds the current positions of the selected tasks. A task selected more than once appears once.
      *
-     * @return Description of the event with its start and end timings.
+     * @param tasks The task list to look in.
+     * @return The zero-based positions, in ascending order.
+     * @throws TalkingCatException If a position is out of range or an ID is not in the list.
      */
-    @Override
-    public String getDescription() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM dd yyyy, HH:mm");
-        return super.getDescription() + " (from: " + formatter.format(from) + " to: " + formatter.format(to) + ")";
+    public int[] resolve(TaskList tasks) throws TalkingCatException {
+        int size = tasks.getSize();
+        BitSet positions = new BitSet(size);
+        if (isAll) {
+            positions.set(0, size);
+        }
+        for (int[] range : ranges) {
+            if (range[1] >= size) {
+                throw new TalkingCatException("Invalid task number: " + (range[1] + 1) + ". There are only "
+                        + size + " tasks in the list.");
+            }
+            positions.set(range[0], range[1] + 1);
+        }
+        for (int id : ids) {
+            positions.set(TaskSelector.byId(id).resolve(tasks));
+        }
+        if (doneFilter != null) {
+            int position = 0;
+            for (Task task : tasks.asList()) {
+                if (task.isDone != doneFilter) {
+                    positions.clear(position);
+                }
+                position++;
+            }
+        }
+        return positions.stream().toArray();
     }
+}
+
+abstract class Command {
+    private CommandType type;
+
+    public abstract String execute(TaskList tasks, Ui ui, Storage storage) throws TalkingCatException;
+    public abstract boolean isExit();
 
     /**
-     * Gets the start date and time of the event.
+     * Notes the command type this command was parsed as, which decides how its result is shown.
      *
-     * @return The start date and time.
+     * @param type The command type.
      */
-    public LocalDateTime getFrom() {
-        return from;
+    void setType(CommandType type) {
+        this.type = type;
     }
 
     /**
-     * Gets the end date and time of the event.
+     * Turns the result of this command into what the chat window shows, as its command type declares.
+     * Commands that were not parsed from user input show their result as it is.
      *
-     * @return The end date and time.
+     * @param result The string the command returned from execute.
+     * @param tasks The task list after the command.
+     * @param ui The user interface.
+     * @return The response to show.
      */
-    public LocalDateTime getTo() {
-        return to;
+    public String render(String result, TaskList tasks, Ui ui) {
+        return type == null ? result : type.getRenderer().render(result, tasks, ui);
     }
-}
-
 
-abstract class Command {
-    public abstract String execute(TaskList tasks, Ui ui, Storage storage) throws TalkingCatException;
-    public abstract boolean isExit();
+    /**
+     * Answers this command from a snapshot of the whole list, without touching the list itself, so that it
+     * can run on any thread while the writer keeps changing the list. Only commands that read the list can
+     * do this; the rest return null and have to be executed by the writer.
+     *
+     * @param snapshot A snapshot of the fully loaded list.
+     * @param ui The user interface used to format the answer.
+     * @return The answer, or null if the command has to be executed.
+     */
+    public String read(TaskSnapshot snapshot, Ui ui) {
+        return null;
+    }
 }
 
 /**
  * Represents a command to mark a task as done.
  */
 class MarkCommand extends Command {
-    private int index;
+    private TaskSelector selector;
+    private TaskSelection selection;
 
     /**
      * Constructs a MarkCommand to mark the task at the specified index as done.
@@ -982,7 +6457,25 @@ class MarkCommand extends Command {
      * @param index The index of the task in the task list to be marked as done.
      */
     public MarkCommand(int index) {
-        this.index = index;
+        this(TaskSelector.atPosition(index));
+    }
+
+    /**
+     * Constructs a MarkCommand to mark the selected task as done.
+     *
+     * @param selector The position or ID of the task to be marked as done.
+     */
+    public MarkCommand(TaskSelector selector) {
+        this.selector = selector;
+    }
+
+    /**
+     * Constructs a MarkCommand to mark several tasks as done.
+     *
+     * @param selection The tasks to be marked as done.
+     */
+    public MarkCommand(TaskSelection selection) {
+        this.selection = selection;
     }
 
     /**
@@ -993,18 +6486,48 @@ class MarkCommand extends Command {
      * @param ui The user interface for displaying messages.
      * @param storage The storage for saving the updated task list.
      * @return A string indicating the task has been marked as done.
-     * @throws TalkingCatException If the specified index is invalid.
+     * @throws TalkingCatException If the specified task does not exist.
      */
     @Override
     public String execute(TaskList tasks, Ui ui, Storage storage) throws TalkingCatException {
-        if (index < 0 || index >= tasks.getSize()) {
-            throw new TalkingCatException("Invalid task number.");
+        if (selection != null) {
+            return markSelection(tasks, storage, selection, true);
         }
+        int index = selector.resolve(tasks);
         Task task = tasks.getTask(index);
-        task.markAsDone();
-        ui.showMarkedTask(task);
-        storage.save(tasks);
-        return "Marked as done: " + task;
+        tasks.setDone(index, true);
+        storage.recordMark(tasks, index);
+        return ui.showMarkedTask(task);
+    }
+
+    /**
+     * Sets the status of several tasks in one pass and persists the changes once.
+     * Tasks that already have the status are left alone.
+     *
+     * @param tasks The task list containing the tasks.
+     * @param storage The storage for saving the changes.
+     * @param selection The tasks to change.
+     * @param isDone The new status of the tasks.
+     * @return A summary of how many tasks were changed.
+     * @throws TalkingCatException If the selection refers to tasks that do not exist.
+     */
+    static String markSelection(TaskList tasks, Storage storage, TaskSelection selection, boolean isDone)
+            throws TalkingCatException {
+        int[] positions = selection.resolve(tasks);
+        List<String> entries = new ArrayList<>();
+        for (int position : positions) {
+            if (tasks.setDone(position, isDone)) {
+                entries.add((isDone ? "M | " : "U | ") + position);
+            }
+        }
+        storage.recordBatch(entries, tasks);
+        String status = isDone ? "done" : "not done";
+        int unchanged = positions.length - entries.size();
+        String summary = "Marked " + entries.size() + (entries.size() == 1 ? " task" : " tasks") + " as " + status + ".";
+        if (unchanged > 0) {
+            summary += " " + unchanged + (unchanged == 1 ? " was" : " were") + " already " + status + ".";
+        }
+        return summary;
     }
 
     /**
@@ -1022,7 +6545,8 @@ class MarkCommand extends Command {
  * Represents a command to unmark a task as not done.
  */
 class UnmarkCommand extends Command {
-    private int index;
+    private TaskSelector selector;
+    private TaskSelection selection;
 
     /**
      * Constructs an UnmarkCommand to unmark the task at the specified index as not done.
@@ -1030,7 +6554,25 @@ class UnmarkCommand extends Command {
      * @param index The index of the task in the task list to be unmarked.
      */
     public UnmarkCommand(int index) {
-        this.index = index;
+        this(TaskSelector.atPosition(index));
+    }
+
+    /**
+     * Constructs an UnmarkCommand to unmark the selected task as not done.
+     *
+     * @param selector The position or ID of the task to be unmarked.
+     */
+    public UnmarkCommand(TaskSelector selector) {
+        this.selector = selector;
+    }
+
+    /**
+     * Constructs an UnmarkCommand to unmark several tasks as not done.
+     *
+     * @param selection The tasks to be unmarked.
+     */
+    public UnmarkCommand(TaskSelection selection) {
+        this.selection = selection;
     }
 
     /**
@@ -1041,18 +6583,18 @@ class UnmarkCommand extends Command {
      * @param ui The user interface for displaying messages.
      * @param storage The storage for saving the updated task list.
      * @return A string indicating the task has been unmarked as not done.
-     * @throws TalkingCatException If the specified index is invalid.
+     * @throws TalkingCatException If the specified task does not exist.
      */
     @Override
     public String execute(TaskList tasks, Ui ui, Storage storage) throws TalkingCatException {
-        if (index < 0 || index >= tasks.getSize()) {
-            throw new TalkingCatException("Invalid task number.");
+        if (selection != null) {
+            return MarkCommand.markSelection(tasks, storage, selection, false);
         }
+        int index = selector.resolve(tasks);
         Task task = tasks.getTask(index);
-        task.markAsNotDone();
-        ui.showUnmarkedTask(task);
-        storage.save(tasks);
-        return "Marked as not done: " + task;
+        tasks.setDone(index, false);
+        storage.recordUnmark(tasks, index);
+        return ui.showUnmarkedTask(task);
     }
 
     /**
@@ -1070,7 +6612,8 @@ class UnmarkCommand extends Command {
  * Represents a command to delete a task from the task list.
  */
 class DeleteCommand extends Command {
-    private int index;
+    private TaskSelector selector;
+    private TaskSelection selection;
 
     /**
      * Constructs a DeleteCommand to delete the task at the specified index from the task list.
@@ -1078,7 +6621,25 @@ class DeleteCommand extends Command {
      * @param index The index of the task in the task list to be deleted.
      */
     public DeleteCommand(int index) {
-        this.index = index;
+        this(TaskSelector.atPosition(index));
+    }
+
+    /**
+     * Constructs a DeleteCommand to delete the selected task from the task list.
+     *
+     * @param selector The position or ID of the task to be deleted.
+     */
+    public DeleteCommand(TaskSelector selector) {
+        this.selector = selector;
+    }
+
+    /**
+     * Constructs a DeleteCommand to delete several tasks from the task list.
+     *
+     * @param selection The tasks to be deleted.
+     */
+    public DeleteCommand(TaskSelection selection) {
+        this.selection = selection;
     }
 
     /**
@@ -1089,17 +6650,33 @@ class DeleteCommand extends Command {
      * @param ui The user interface for displaying messages.
      * @param storage The storage for saving the updated task list.
      * @return A string indicating the task has been deleted.
-     * @throws TalkingCatException If the specified index is invalid.
+     * @throws TalkingCatException If the specified task does not exist.
      */
     @Override
     public String execute(TaskList tasks, Ui ui, Storage storage) throws TalkingCatException {
-        if (index < 0 || index >= tasks.getSize()) {
-            throw new TalkingCatException("Invalid task number.");
+        if (selection != null) {
+            return deleteSelection(tasks, storage);
         }
+        int index = selector.resolve(tasks);
         Task task = tasks.removeTask(index);
-        ui.showDeletedTask(task, tasks.getSize());
-        storage.save(tasks);
-        return "Deleted task: " + task;
+        storage.recordDelete(tasks, index);
+        return ui.showDeletedTask(task, tasks.getSize());
+    }
+
+    /**
+     * Deletes the selected tasks from the highest position down, so that each position still refers to
+     * the task it was resolved to, and persists the deletions once.
+     */
+    private String deleteSelection(TaskList tasks, Storage storage) throws TalkingCatException {
+        int[] positions = selection.resolve(tasks);
+        List<String> entries = new ArrayList<>(positions.length);
+        for (int i = positions.length - 1; i >= 0; i--) {
+            tasks.removeTask(positions[i]);
+            entries.add("D | " + positions[i]);
+        }
+        storage.recordBatch(entries, tasks);
+        return "Deleted " + positions.length + (positions.length == 1 ? " task" : " tasks")
+                + ". Now you have " + tasks.getSize() + " tasks in the list.";
     }
 
     /**
@@ -1118,53 +6695,148 @@ class DeleteCommand extends Command {
  */
 class ExitCommand extends Command {
     /**
-     * Executes the exit command, showing a goodbye message.
+     * Executes the exit command, writing any pending changes and showing a goodbye message.
      *
      * @param tasks The current task list (not used in this command).
      * @param ui The user interface for displaying the goodbye message.
-     * @param storage The storage (not used in this command).
+     * @param storage The storage whose pending changes are written.
      * @return A string indicating that the application will exit.
      */
     @Override
     public String execute(TaskList tasks, Ui ui, Storage storage) {
+        storage.flush();
         ui.showGoodbye();
         return "Goodbye!";
     }
 
     /**
-     * Indicates that this command causes the application to exit.
-     *
-     * @return true, indicating the application should exit.
+     * Indicates that this command causes the application to exit.
+     *
+     * @return true, indicating the application should exit.
+     */
+    @Override
+    public boolean isExit() {
+        return true;
+    }
+}
+
+/**
+ * Represents a command to list all tasks currently in the task list.
+ */
+class ListCommand extends Command {
+    private int page;
+    private int pageSize;
+
+    /**
+     * Constructs a ListCommand that shows the first page of the list.
+     */
+    public ListCommand() {
+        this(1, Ui.DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * Constructs a ListCommand that shows the given page of the list.
+     *
+     * @param page The page to show, starting from 1.
+     * @param pageSize The number of tasks on each page.
+     */
+    public ListCommand(int page, int pageSize) {
+        assert page >= 1 && pageSize >= 1 : "Page and page size must be positive";
+        this.page = page;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Executes the command to display one page of the task list. While the list is still loading,
+     * a page that has already loaded is shown without waiting for the rest.
+     *
+     * @param tasks The task list to be displayed.
+     * @param ui The user interface to display the task list.
+     * @param storage The storage of the task list (not directly used in this command).
+     * @return A formatted string representing the page and the total number of tasks.
+     */
+    @Override
+    public String execute(TaskList tasks, Ui ui, Storage storage) {
+        if (tasks.isLoading()) {
+            List<Task> loadedTasks = tasks.getLoadedTasks();
+            long end = (long) page * pageSize;
+            if (end <= loadedTasks.size()) {
+                int from = (int) (end - pageSize);
+                return ui.formatLoadingTaskList(loadedTasks.subList(from, (int) end), from + 1);
+            }
+        }
+        return ui.formatTaskPage(tasks, page, pageSize);
+    }
+
+    @Override
+    public String read(TaskSnapshot snapshot, Ui ui) {
+        return ui.formatTaskPage(snapshot, page, pageSize);
+    }
+
+    /**
+     * Indicates that this command does not terminate the application.
+     *
+     * @return false, indicating that the command does not exit the application.
+     */
+    public boolean isExit() {
+        return false;
+    }
+}
+
+/**
+ * Represents a command to write the whole task list to the console, a chunk of rows at a time.
+ */
+class ListAllCommand extends Command {
+    /**
+     * Executes the command, streaming every task to the user interface's output.
+     *
+     * @param tasks The task list to be written.
+     * @param ui The user interface whose output the list is written to.
+     * @param storage The storage of the task list (not used in this command).
+     * @return A summary of how many tasks were written.
+     * @throws TalkingCatException If the output cannot be written to.
+     */
+    @Override
+    public String execute(TaskList tasks, Ui ui, Storage storage) throws TalkingCatException {
+        try {
+            int count = ui.streamTaskList(tasks);
+            return "Listed all " + count + " tasks on the console.";
+        } catch (IOException e) {
+            throw new TalkingCatException("Could not write the task list: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the whole list in the answer, since a reader has no console of its own to stream it to.
      */
+    @Override
+    public String read(TaskSnapshot snapshot, Ui ui) {
+        return ui.formatTaskList(snapshot);
+    }
+
     @Override
     public boolean isExit() {
-        return true;
+        return false;
     }
 }
 
 /**
- * Represents a command to list all tasks currently in the task list.
+ * Represents a command that adds one new task to the task list.
  */
-class ListCommand extends Command {
+abstract class AddTaskCommand extends Command {
     /**
-     * Executes the command to display all tasks in the task list.
+     * Creates the task this command adds, without adding it.
      *
-     * @param tasks The task list to be displayed.
-     * @param ui The user interface to display the task list.
-     * @param storage The storage of the task list (not directly used in this command).
-     * @return A formatted string representing all tasks in the task list.
+     * @return The new task.
      */
-    @Override
-    public String execute(TaskList tasks, Ui ui, Storage storage) {
-        ui.showTaskList(tasks);
-        return ui.formatTaskList(tasks);
-    }
+    abstract Task createTask();
 
     /**
-     * Indicates that this command does not terminate the application.
+     * Indicates that this command does not cause the application to exit.
      *
      * @return false, indicating that the command does not exit the application.
      */
+    @Override
     public boolean isExit() {
         return false;
     }
@@ -1173,7 +6845,7 @@ class ListCommand extends Command {
 /**
  * Represents a command to add a new Todo task to the task list.
  */
-class AddTodoCommand extends Command {
+class AddTodoCommand extends AddTaskCommand {
     private String description;
 
     /**
@@ -1196,28 +6868,23 @@ class AddTodoCommand extends Command {
      */
     @Override
     public String execute(TaskList tasks, Ui ui, Storage storage) {
-        Todo newTodo = new Todo(description);
+        Task newTodo = createTask();
         tasks.addTask(newTodo);
         ui.showTaskAdded(newTodo, tasks.getSize());
-        storage.save(tasks);
+        storage.recordAdd(tasks, newTodo);
         return "Added task: " + newTodo;
     }
 
-    /**
-     * Indicates that this command does not cause the application to exit.
-     *
-     * @return false, indicating that the command does not exit the application.
-     */
     @Override
-    public boolean isExit() {
-        return false;
+    Task createTask() {
+        return new Todo(description);
     }
 }
 
 /**
  * Represents a command to add a new Deadline task to the task list.
  */
-class AddDeadlineCommand extends Command {
+class AddDeadlineCommand extends AddTaskCommand {
     private String description;
     private LocalDateTime by;
 
@@ -1243,28 +6910,23 @@ class AddDeadlineCommand extends Command {
      */
     @Override
     public String execute(TaskList tasks, Ui ui, Storage storage) {
-        Deadline newDeadline = new Deadline(description, by);
+        Task newDeadline = createTask();
         tasks.addTask(newDeadline);
         ui.showTaskAdded(newDeadline, tasks.getSize());
-        storage.save(tasks);
+        storage.recordAdd(tasks, newDeadline);
         return "Added task: " + newDeadline;
     }
 
-    /**
-     * Indicates that this command does not cause the application to exit.
-     *
-     * @return false, indicating that the command does not exit the application.
-     */
     @Override
-    public boolean isExit() {
-        return false;
+    Task createTask() {
+        return new Deadline(description, by);
     }
 }
 
 /**
  * Represents a command to add a new Event task to the task list.
  */
-class AddEventCommand extends Command {
+class AddEventCommand extends AddTaskCommand {
     private String description;
     private LocalDateTime start;
     private LocalDateTime end;
@@ -1284,7 +6946,7 @@ class AddEventCommand extends Command {
 
     /**
      * Executes the command to add a new Event task to the task list, shows the added task,
-     * and saves the updated task list to storage.
+     * and saves the updated task list to storage. Warns if the event overlaps other events.
      *
      * @param tasks The task list where the new Event will be added.
      * @param ui The user interface to display the added task message.
@@ -1293,18 +6955,115 @@ class AddEventCommand extends Command {
      */
     @Override
     public String execute(TaskList tasks, Ui ui, Storage storage) {
-        Event newEvent = new Event(description, start, end);
+        Event newEvent = createTask();
         tasks.addTask(newEvent);
         ui.showTaskAdded(newEvent, tasks.getSize());
-        storage.save(tasks);
-        return "Added task: " + newEvent;
+        storage.recordAdd(tasks, newEvent);
+        String warning = ui.formatClashWarning(tasks.findClashes(newEvent));
+        return "Added task: " + newEvent + (warning.isEmpty() ? "" : "\n" + warning);
+    }
+
+    @Override
+    Event createTask() {
+        return new Event(description, start, end);
     }
+}
+
+/**
+ * Represents a command to import tasks from a file. Each line is either a todo, deadline or event command,
+ * or a record in the storage text format. Every line is checked before any task is added, so either
+ * the whole file is imported or nothing is, and the imported tasks are saved together.
+ */
+class ImportCommand extends Command {
+    private static final int MAX_ERRORS_SHOWN = 20;
+
+    private Path file;
 
     /**
-     * Indicates that this command does not cause the application to exit.
+     * Constructs an ImportCommand for the given file.
      *
-     * @return false, indicating that the command does not exit the application.
+     * @param file The file to import.
+     */
+    public ImportCommand(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Executes the import, reading the file one line at a time.
+     *
+     * @param tasks The task list the tasks are added to.
+     * @param ui The user interface (not used in this command).
+     * @param storage The storage that saves the imported tasks.
+     * @return The number of tasks imported and the import rate, or the lines that could not be imported.
+     * @throws TalkingCatException If the file cannot be read.
+     */
+    @Override
+    public String execute(TaskList tasks, Ui ui, Storage storage) throws TalkingCatException {
+        long startNanos = System.nanoTime();
+        List<Task> newTasks = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        int lineCount = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineCount++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    newTasks.add(parseLine(line.trim(), storage));
+                } catch (TalkingCatException e) {
+                    errors.add("Line " + lineCount + ": " + e.getMessage());
+                }
+            }
+        } catch (NoSuchFileException e) {
+            throw new TalkingCatException("There is no file named " + file + ".");
+        } catch (IOException e) {
+            throw new TalkingCatException("Could not read " + file + ": " + e.getMessage());
+        }
+        if (!errors.isEmpty()) {
+            return formatErrors(errors);
+        }
+        for (Task task : newTasks) {
+            tasks.addTask(task);
+        }
+        storage.recordAdds(tasks, newTasks);
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return String.format("Imported %d tasks from %d lines in %.0f ms (%.0f lines per second).\n"
+                        + "Now you have %d tasks in the list.",
+                newTasks.size(), lineCount, seconds * 1000, lineCount / Math.max(seconds, 1e-9), tasks.getSize());
+    }
+
+    /**
+     * Parses one line of the file into the task it adds.
      */
+    private static Task parseLine(String line, Storage storage) throws TalkingCatException {
+        if (line.length() > 3 && "TDE".indexOf(line.charAt(0)) >= 0 && line.startsWith(" | ", 1)) {
+            Task task = storage.parseRecord(line);
+            if (task == null) {
+                throw new TalkingCatException("Invalid or corrupted record.");
+            }
+            return task;
+        }
+        Command command = Parser.parse(line);
+        if (!(command instanceof AddTaskCommand)) {
+            throw new TalkingCatException("Only todo, deadline and event commands can be imported.");
+        }
+        return ((AddTaskCommand) command).createTask();
+    }
+
+    private static String formatErrors(List<String> errors) {
+        StringBuilder response = new StringBuilder("Nothing was imported, because ").append(errors.size())
+                .append(errors.size() == 1 ? " line has an error:\n" : " lines have errors:\n");
+        for (String error : errors.subList(0, Math.min(errors.size(), MAX_ERRORS_SHOWN))) {
+            response.append(error).append("\n");
+        }
+        if (errors.size() > MAX_ERRORS_SHOWN) {
+            response.append("...and ").append(errors.size() - MAX_ERRORS_SHOWN).append(" more.\n");
+        }
+        return response.toString();
+    }
+
     @Override
     public boolean isExit() {
         return false;
@@ -1312,21 +7071,59 @@ class AddEventCommand extends Command {
 }
 
 class FindCommand extends Command {
+    private static final ParallelSearch SNAPSHOT_SEARCH = new ParallelSearch();
     private String keyword;
     private String test;
+    private int offset;
+    private int limit;
 
     public FindCommand(String keyword) {
+        this(keyword, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Constructs a FindCommand that returns one page of the matches.
+     *
+     * @param keyword The keyword to search for.
+     * @param offset The number of matches to skip.
+     * @param limit The largest number of matches to show.
+     */
+    public FindCommand(String keyword, int offset, int limit) {
         assert keyword != null && !keyword.trim().isEmpty() : "Keyword for find command cannot be empty";
         this.keyword = keyword;
+        this.offset = offset;
+        this.limit = limit;
     }
 
     @Override
     public String execute(TaskList tasks, Ui ui, Storage storage) throws TalkingCatException {
-        List<Task> matchedTasks = tasks.findTasks(keyword);
+        if (tasks.isLoading()) {
+            List<Task> matchedTasks = tasks.findLoadedTasks(keyword, offset, getSearchLimit());
+            String matches = matchedTasks.isEmpty()
+                    ? "No tasks matched your keyword yet.\n"
+                    : ui.formatMatchedTasks(matchedTasks, offset, limit);
+            return matches + "Still loading, more tasks may match.";
+        }
+        List<Task> matchedTasks = tasks.findTasks(keyword, offset, getSearchLimit());
         if (matchedTasks.isEmpty()) {
             return "No tasks matched your keyword.";
         } else {
-            return ui.formatMatchedTasks(matchedTasks);
+            return ui.formatMatchedTasks(matchedTasks, offset, limit);
+        }
+    }
+
+    /**
+     * Scans the snapshot instead of using the list's search index, which only the writer may build.
+     * Matches are shown with their status in the snapshot.
+     */
+    @Override
+    public String read(TaskSnapshot snapshot, Ui ui) {
+        int[] positions = SNAPSHOT_SEARCH.findPositions(snapshot.getTaskArray(), keyword, offset,
+                getSearchLimit());
+        if (positions.length == 0) {
+            return "No tasks matched your keyword.";
+        } else {
+            return ui.formatMatchedTasks(snapshot, positions, offset, limit);
         }
     }
 
@@ -1338,4 +7135,311 @@ class FindCommand extends Command {
     public String getKeyword() {
         return keyword;
     }
-}
\ No newline at end of file
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Returns the number of matches to search for: one more than the page holds, so that the page only
+     * offers a next page when there is a match on it.
+     *
+     * @return The number of matches to search for.
+     */
+    int getSearchLimit() {
+        return limit == Integer.MAX_VALUE ? limit : limit + 1;
+    }
+}
+
+/**
+ * Represents a command to find tasks containing all or any of several whole words.
+ */
+class FindWordsCommand extends FindCommand {
+    private boolean isMatchAll;
+
+    /**
+     * Constructs a FindWordsCommand for the given words.
+     *
+     * @param words The words to search for.
+     * @param isMatchAll Whether a task must contain every word, rather than any of them.
+     */
+    public FindWordsCommand(String words, boolean isMatchAll) {
+        this(words, isMatchAll, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Constructs a FindWordsCommand that returns one page of the matches.
+     *
+     * @param words The words to search for.
+     * @param isMatchAll Whether a task must contain every word, rather than any of them.
+     * @param offset The number of matches to skip.
+     * @param limit The largest number of matches to show.
+     */
+    public FindWordsCommand(String words, boolean isMatchAll, int offset, int limit) {
+        super(words, offset, limit);
+        this.isMatchAll = isMatchAll;
+    }
+
+    /**
+     * Executes the command, answering from the token index once the whole list has loaded.
+     *
+     * @param tasks The task list to search.
+     * @param ui The user interface used to format the matches.
+     * @param storage The storage of the task list (not used in this command).
+     * @return The matching tasks, or a message that none matched.
+     */
+    @Override
+    public String execute(TaskList tasks, Ui ui, Storage storage) {
+        if (tasks.isLoading()) {
+            List<Task> matchedTasks = page(tasks.findLoadedTasksByWords(getKeyword(), isMatchAll));
+            String matches = matchedTasks.isEmpty()
+                    ? "No tasks matched your words yet.\n"
+                    : ui.formatMatchedTasks(matchedTasks, getOffset(), getLimit());
+            return matches + "Still loading, more tasks may match.";
+        }
+        List<Task> matchedTasks = page(tasks.findTasksByWords(getKeyword(), isMatchAll));
+        if (matchedTasks.isEmpty()) {
+            return "No tasks matched your words.";
+        }
+        return ui.formatMatchedTasks(matchedTasks, getOffset(), getLimit());
+    }
+
+    /**
+     * Leaves the search to the writer, since it needs the list's token index.
+     */
+    @Override
+    public String read(TaskSnapshot snapshot, Ui ui) {
+        return null;
+    }
+
+    private List<Task> page(List<Task> matchedTasks) {
+        int start = Math.min(getOffset(), matchedTasks.size());
+        int end = (int) Math.min(matchedTasks.size(), (long) start + getSearchLimit());
+        return matchedTasks.subList(start, end);
+    }
+}
+
+/**
+ * Represents a command to list the deadlines due by a given time.
+ */
+class DueCommand extends Command {
+    private LocalDateTime before;
+
+    /**
+     * Constructs a DueCommand for the deadlines due at or before the given time.
+     *
+     * @param before The latest due time to include.
+     */
+    public DueCommand(LocalDateTime before) {
+        this.before = before;
+    }
+
+    /**
+     * Executes the command, answering from the deadline index.
+     *
+     * @param tasks The task list to search.
+     * @param ui The user interface used to format the deadlines.
+     * @param storage The storage of the task list (not used in this command).
+     * @return The deadlines due by the given time, earliest first.
+     */
+    @Override
+    public String execute(TaskList tasks, Ui ui, Storage storage) {
+        return ui.formatDueTasks(tasks.findDeadlinesDue(before), before);
+    }
+
+    @Override
+    public boolean isExit() {
+        return false;
+    }
+}
+
+/**
+ * Represents a command to list the events taking place on a given day.
+ */
+class OnCommand extends Command {
+    private LocalDate date;
+
+    /**
+     * Constructs an OnCommand for the given day.
+     *
+     * @param date The day to look up.
+     */
+    public OnCommand(LocalDate date) {
+        this.date = date;
+    }
+
+    /**
+     * Executes the command, answering from the event index.
+     *
+     * @param tasks The task list to search.
+     * @param ui The user interface used to format the events.
+     * @param storage The storage of the task list (not used in this command).
+     * @return The events on the given day, ordered by start time.
+     */
+    @Override
+    public String execute(TaskList tasks, Ui ui, Storage storage) {
+        return ui.formatEventsOn(tasks.findEventsOn(date), date);
+    }
+
+    @Override
+    public boolean isExit() {
+        return false;
+    }
+}
+
+/**
+ * Represents a command to list the events that overlap each other.
+ */
+class ConflictsCommand extends Command {
+    /**
+     * Executes the command, answering from the event index.
+     *
+     * @param tasks The task list to search.
+     * @param ui The user interface used to format the overlapping events.
+     * @param storage The storage of the task list (not used in this command).
+     * @return The pairs of overlapping events.
+     */
+    @Override
+    public String execute(TaskList tasks, Ui ui, Storage storage) {
+        return ui.formatConflicts(tasks.findConflicts());
+    }
+
+    @Override
+    public boolean isExit() {
+        return false;
+    }
+}
+
+/**
+ * Represents a command to undo or redo the most recent change to the task list.
+ */
+class UndoCommand extends Command {
+    private boolean isRedo;
+
+    /**
+     * Constructs an UndoCommand.
+     *
+     * @param isRedo Whether to redo the most recently undone change, rather than undo the most recent change.
+     */
+    public UndoCommand(boolean isRedo) {
+        this.isRedo = isRedo;
+    }
+
+    /**
+     * Executes the command, reverting or reapplying one change and persisting the edits this makes.
+     *
+     * @param tasks The task list to change.
+     * @param ui The user interface (not used in this command).
+     * @param storage The storage that saves the edits.
+     * @return A summary of the change that was undone or redone.
+     */
+    @Override
+    public String execute(TaskList tasks, Ui ui, Storage storage) {
+        TaskHistory history = tasks.getHistory();
+        TaskHistory.Change change = isRedo ? history.peekRedo() : history.peekUndo();
+        List<TaskHistory.Edit> applied = isRedo ? tasks.redo() : tasks.undo();
+        if (applied == null) {
+            return isRedo ? "Nothing to redo." : "Nothing to undo.";
+        }
+        storage.recordEdits(tasks, applied);
+        return (isRedo ? "Redid: " : "Undid: ") + change.getLabel() + " (" + applied.size()
+                + (applied.size() == 1 ? " edit)." : " edits).")
+                + "\nNow you have " + tasks.getSize() + " tasks in the list.";
+    }
+
+    @Override
+    public boolean isExit() {
+        return false;
+    }
+}
+
+/**
+ * Represents a command to show the changes that can be undone.
+ */
+class HistoryCommand extends Command {
+    private static final int MAX_CHANGES_SHOWN = 20;
+
+    /**
+     * Executes the command, listing the most recent changes and the memory the history uses.
+     *
+     * @param tasks The task list whose history is shown.
+     * @param ui The user interface (not used in this command).
+     * @param storage The storage of the task list (not used in this command).
+     * @return The undoable changes, newest first.
+     */
+    @Override
+    public String execute(TaskList tasks, Ui ui, Storage storage) {
+        TaskHistory history = tasks.getHistory();
+        List<TaskHistory.Change> changes = history.getUndoableChanges();
+        StringBuilder response = new StringBuilder();
+        if (changes.isEmpty()) {
+            response.append("There are no changes to undo.\n");
+        } else {
+            response.append("Here are the changes you can undo, newest first:\n");
+            for (int i = 0; i < Math.min(changes.size(), MAX_CHANGES_SHOWN); i++) {
+                TaskHistory.Change change = changes.get(i);
+                int editCount = change.getEdits().size();
+                response.append(i + 1).append(". ").append(change.getLabel()).append(" (").append(editCount)
+                        .append(editCount == 1 ? " edit)\n" : " edits)\n");
+            }
+            if (changes.size() > MAX_CHANGES_SHOWN) {
+                response.append("...and ").append(changes.size() - MAX_CHANGES_SHOWN).append(" older changes.\n");
+            }
+        }
+        response.append(String.format("%d changes can be redone. The history uses about %d KB of its %d KB budget",
+                history.getRedoableCount(), history.getUsedBytes() / 1024, history.getBudgetBytes() / 1024));
+        if (history.getForgottenChanges() > 0) {
+            response.append(", and has forgotten ").append(history.getForgottenChanges()).append(" older changes");
+        }
+        return response.append(".").toString();
+    }
+
+    @Override
+    public boolean isExit() {
+        return false;
+    }
+}
+
+/**
+ * Represents a command to convert the storage file to another on-disk format.
+ */
+class ConvertCommand extends Command {
+    private StorageFormat format;
+
+    /**
+     * Constructs a ConvertCommand that converts the storage file to the given format.
+     *
+     * @param format The format to convert the storage file to.
+     */
+    public ConvertCommand(StorageFormat format) {
+        this.format = format;
+    }
+
+    /**
+     * Executes the convert command, rewriting the storage file in the requested format.
+     *
+     * @param tasks The current task list.
+     * @param ui The user interface (not used in this command).
+     * @param storage The storage whose file is converted.
+     * @return A string indicating the format the file was converted to.
+     */
+    @Override
+    public String execute(TaskList tasks, Ui ui, Storage storage) {
+        storage.convert(tasks, format);
+        return "Converted the data file to " + format.toString().toLowerCase() + " format.";
+    }
+
+    /**
+     * Indicates that this command does not cause the application to exit.
+     *
+     * @return false, indicating that the command does not exit the application.
+     */
+    @Override
+    public boolean isExit() {
+        return false;
+    }
+}
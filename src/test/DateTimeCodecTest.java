@@ -0,0 +1,77 @@
+package seedu.talkingcat;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+public class DateTimeCodecTest {
+    private static final DateTimeFormatter INPUT_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HHmm");
+
+    /**
+     * Checks that the codec parses the text to the same date as the formatter, or rejects it as the formatter does.
+     */
+    private static void assertSameParse(String text, DateTimeCodec.Layout layout, DateTimeFormatter formatter) {
+        String expected;
+        try {
+            expected = LocalDateTime.parse(text, formatter).toString();
+        } catch (DateTimeParseException e) {
+            expected = "error";
+        }
+        String actual;
+        try {
+            actual = DateTimeCodec.parse(text, layout).toString();
+        } catch (DateTimeParseException e) {
+            actual = "error";
+        }
+        assertEquals(expected, actual, "Codec should parse '" + text + "' like the formatter.");
+    }
+
+    @Test
+    public void parse_edgeDates_matchesFormatter() {
+        String[] dates = {"2024-02-29", "2023-02-29", "2024-02-30", "2023-04-31", "2023-12-31", "0000-01-01",
+                "0001-01-01", "9999-12-31", "2024-00-10", "2024-13-10", "2024-01-00", "2024-01-32",
+                "2024-0a-01", "2024-01-1x", "20x4-01-01", "2024/01/01", "-024-01-01", " 2024-01-01"};
+        String[][] times = {{"1800", "18:00"}, {"0000", "00:00"}, {"2359", "23:59"}, {"2400", "24:00"},
+                {"1260", "12:60"}, {"1x00", "1x:00"}};
+        for (String date : dates) {
+            for (String[] time : times) {
+                assertSameParse(date + " " + time[0], DateTimeCodec.Layout.INPUT, INPUT_FORMATTER);
+                assertSameParse(date + " " + time[1], DateTimeCodec.Layout.STORAGE, Task.STORAGE_FORMATTER);
+            }
+        }
+        assertSameParse("2024-01-01 18:00", DateTimeCodec.Layout.INPUT, INPUT_FORMATTER);
+        assertSameParse("2024-01-01 1800", DateTimeCodec.Layout.STORAGE, Task.STORAGE_FORMATTER);
+    }
+
+    @Test
+    public void parse_edgeDisplayDates_matchesFormatter() {
+        String[] dates = {"Feb 29 2024", "Feb 29 2023", "Feb 30 2024", "Apr 31 2023", "Jan 01 0000", "Jan 01 0001",
+                "Dec 31 9999", "Jan 00 2024", "Jan 1x 2024", "Jan 01 20x4", "Foo 01 2024", "jan 01 2024"};
+        for (String date : dates) {
+            for (String time : new String[] {"18:00", "24:00", "12:60", "1x:00"}) {
+                assertSameParse(date + ", " + time, DateTimeCodec.Layout.DISPLAY, Task.DISPLAY_FORMATTER);
+            }
+        }
+        assertSameParse("Jan 01 2024 18:00", DateTimeCodec.Layout.DISPLAY, Task.DISPLAY_FORMATTER);
+    }
+
+    @Test
+    public void format_edgeDates_matchesFormatter() {
+        LocalDateTime[] dateTimes = {LocalDateTime.of(2024, 2, 29, 18, 5), LocalDateTime.of(0, 1, 1, 0, 0),
+                LocalDateTime.of(1, 1, 1, 0, 0), LocalDateTime.of(9999, 12, 31, 23, 59),
+                LocalDateTime.of(10000, 1, 1, 0, 0), LocalDateTime.of(-1, 6, 15, 12, 30)};
+        for (LocalDateTime dateTime : dateTimes) {
+            assertEquals(INPUT_FORMATTER.format(dateTime), DateTimeCodec.format(dateTime, DateTimeCodec.Layout.INPUT),
+                    "Input layout should match the formatter for " + dateTime);
+            assertEquals(Task.STORAGE_FORMATTER.format(dateTime),
+                    DateTimeCodec.format(dateTime, DateTimeCodec.Layout.STORAGE),
+                    "Storage layout should match the formatter for " + dateTime);
+            assertEquals(Task.DISPLAY_FORMATTER.format(dateTime),
+                    DateTimeCodec.format(dateTime, DateTimeCodec.Layout.DISPLAY),
+                    "Display layout should match the formatter for " + dateTime);
+        }
+    }
+}
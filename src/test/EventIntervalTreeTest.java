@@ -0,0 +1,96 @@
+package seedu.talkingcat;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class EventIntervalTreeTest {
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 3, 1, 9, 0);
+
+    private static Event eventAt(int id, int fromHour, int toHour) {
+        Event event = new Event("event " + id, BASE.plusHours(fromHour), BASE.plusHours(toHour));
+        event.setId(id);
+        return event;
+    }
+
+    private static boolean overlaps(Event event, LocalDateTime start, LocalDateTime end) {
+        return event.getFrom().isBefore(end) && event.getTo().isAfter(start);
+    }
+
+    private static List<Event> sorted(List<Event> events) {
+        List<Event> result = new ArrayList<>(events);
+        result.sort(Comparator.comparing(Event::getFrom).thenComparingInt(Event::getId));
+        return result;
+    }
+
+    @Test
+    public void findOverlapping_touchingEvents_doNotOverlap() {
+        EventIntervalTree tree = new EventIntervalTree();
+        Event morning = eventAt(1, 0, 2);
+        Event noon = eventAt(2, 2, 4);
+        tree.add(morning);
+        tree.add(noon);
+
+        assertEquals(List.of(morning), tree.findOverlapping(BASE, BASE.plusHours(2)),
+                "An event starting when the range ends should not overlap it.");
+        assertEquals(List.of(noon), tree.findOverlapping(BASE.plusHours(2), BASE.plusHours(3)),
+                "An event ending when the range starts should not overlap it.");
+        assertTrue(tree.findConflicts().isEmpty(), "Back-to-back events should not conflict.");
+    }
+
+    @Test
+    public void findOverlappingAndConflicts_randomEvents_matchBruteForce() {
+        Random random = new Random(14);
+        EventIntervalTree tree = new EventIntervalTree();
+        List<Event> events = new ArrayList<>();
+        for (int id = 1; id <= 400; id++) {
+            int from = random.nextInt(500);
+            Event event = eventAt(id, from, from + 1 + random.nextInt(12));
+            tree.add(event);
+            events.add(event);
+        }
+        for (int i = 0; i < 100; i++) {
+            Event removed = events.remove(random.nextInt(events.size()));
+            assertTrue(tree.remove(removed), "A removed event should have been in the tree.");
+            assertFalse(tree.remove(removed), "An event should only be removed once.");
+        }
+        assertEquals(events.size(), tree.size(), "Size should count the events left.");
+
+        for (int i = 0; i < 200; i++) {
+            LocalDateTime start = BASE.plusHours(random.nextInt(520));
+            LocalDateTime end = start.plusHours(random.nextInt(24));
+            List<Event> expected = new ArrayList<>();
+            for (Event event : events) {
+                if (overlaps(event, start, end)) {
+                    expected.add(event);
+                }
+            }
+            assertEquals(sorted(expected), tree.findOverlapping(start, end),
+                    "Overlapping events should match from " + start + " to " + end);
+        }
+
+        Map<Event, List<Event>> expectedConflicts = new LinkedHashMap<>();
+        List<Event> ordered = sorted(events);
+        for (int i = 0; i < ordered.size(); i++) {
+            List<Event> later = new ArrayList<>();
+            for (int j = i + 1; j < ordered.size(); j++) {
+                if (overlaps(ordered.get(j), ordered.get(i).getFrom(), ordered.get(i).getTo())) {
+                    later.add(ordered.get(j));
+                }
+            }
+            if (!later.isEmpty()) {
+                expectedConflicts.put(ordered.get(i), later);
+            }
+        }
+        assertEquals(expectedConflicts, tree.findConflicts(), "Conflicts should match every overlapping pair.");
+    }
+}
@@ -1,10 +1,45 @@
 package seedu.talkingcat;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
 public class ParserTest {
+    @TempDir
+    Path dataDirectory;
+
+    /**
+     * Runs the input against the tasks a to f, of which b and d are done, and returns the descriptions left,
+     * with a trailing "*" on each task that is done.
+     */
+    private List<String> runOnSampleTasks(String input) throws TalkingCatException {
+        TaskList tasks = new TaskList();
+        for (String description : new String[] {"a", "b", "c", "d", "e", "f"}) {
+            tasks.addTask(new Todo(description));
+        }
+        tasks.setDone(1, true);
+        tasks.setDone(3, true);
+        Storage storage = new Storage(dataDirectory.resolve("tasks.txt").toString());
+        try {
+            Parser.parse(input).execute(tasks, new Ui(), storage);
+        } finally {
+            storage.flush();
+        }
+        List<String> descriptions = new ArrayList<>();
+        for (int i = 0; i < tasks.getSize(); i++) {
+            Task task = tasks.getTask(i);
+            descriptions.add(task.getDescription() + (task.isDone ? "*" : ""));
+        }
+        return descriptions;
+    }
+
     @Test
     public void parse_addTodoCommand() throws TalkingCatException {
         Command command = Parser.parse("todo read book");
@@ -90,11 +125,70 @@ public class ParserTest {
     }
 
     @Test
-    public void parse_invalidCommand() {
+    public void parse_invalidCommand_withMessage() {
         assertThrows(TalkingCatException.class, () -> {
             Parser.parse("invalid command");
         }, "Parser should throw TalkingCatException for an unrecognized command.");
     }
 
-}
+    @Test
+    public void parse_deleteCommand_rangesPositionsAndIds() throws TalkingCatException {
+        assertEquals(List.of("d*", "f"), runOnSampleTasks("delete 2-3,5,#1"),
+                "Ranges, positions and IDs should all be deleted.");
+        assertEquals(List.of("a", "e", "f"), runOnSampleTasks("delete 2-4,3,#3"),
+                "Tasks selected more than once should be deleted once.");
+        assertEquals(List.of(), runOnSampleTasks("delete all"), "All should delete every task.");
+    }
+
+    @Test
+    public void parse_bulkCommand_doneFilter() throws TalkingCatException {
+        assertEquals(List.of("a", "c", "e", "f"), runOnSampleTasks("delete all done:true"),
+                "done:true should only select tasks that are done.");
+        assertEquals(List.of("b*", "d*", "e", "f"), runOnSampleTasks("delete 1-4 done:false"),
+                "done:false should only select tasks that are not done.");
+        assertEquals(List.of("a*", "b*", "c*", "d*", "e", "f"), runOnSampleTasks("mark 1-4 DONE:FALSE"),
+                "The filter should ignore case.");
+        assertEquals(List.of("a", "b", "c", "d", "e", "f"), runOnSampleTasks("unmark all done:true"),
+                "Unmark should apply the filter too.");
+    }
+
+    @Test
+    public void parse_bulkCommand_invalidSelection() throws TalkingCatException {
+        for (String input : new String[] {"delete 3-1", "delete 0-2", "delete 1-x", "delete 1,#x",
+                "delete 1,2 3 4", "delete all done:maybe", "mark 1-2 done", "delete ,", "delete 1,", "mark ,",
+                "unmark 1,,3"}) {
+            assertThrows(TalkingCatException.class, () -> Parser.parse(input),
+                    "Parser should reject the selection in '" + input + "'.");
+        }
+        assertThrows(TalkingCatException.class, () -> runOnSampleTasks("delete 5-7"),
+                "A range past the end of the list should be rejected.");
+    }
+
+    @Test
+    public void parse_surroundingSpaces_ignored() throws TalkingCatException {
+        Task task = ((AddTaskCommand) Parser.parse("  todo   read book  ")).createTask();
+        assertEquals("read book", task.getDescription(), "Spaces around the description should be ignored.");
+        assertTrue(Parser.parse("\tlist ") instanceof ListCommand, "Spaces around a keyword should be ignored.");
+        assertTrue(Parser.parse(" mark  2 ") instanceof MarkCommand, "Spaces around an index should be ignored.");
+        assertTrue(Parser.parse("delete #3  ") instanceof DeleteCommand, "Spaces after an ID should be ignored.");
+    }
 
+    @Test
+    public void parse_addDeadlineCommand_multipleSpacesBeforeBy() throws TalkingCatException {
+        for (String input : new String[] {"deadline return book    /by 2022-12-01 1800",
+                "deadline   return book/by   2022-12-01 1800  "}) {
+            Deadline task = (Deadline) ((AddTaskCommand) Parser.parse(input)).createTask();
+            assertEquals("return book", task.getRawDescription(), "Description should be trimmed: " + input);
+            assertEquals(LocalDateTime.of(2022, 12, 1, 18, 0), task.getBy(), "Date should be trimmed: " + input);
+        }
+    }
+
+    @Test
+    public void parse_emptyArgument_throws() {
+        for (String input : new String[] {"todo", "todo   ", "deadline   /by 2022-12-01 1800", "deadline book /by  ",
+                "event  /from Dec 01 2022, 18:00", "find  ", "mark ", "delete  ", "   "}) {
+            assertThrows(TalkingCatException.class, () -> Parser.parse(input),
+                    "Parser should reject the empty argument in '" + input + "'.");
+        }
+    }
+}
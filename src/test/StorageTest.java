@@ -0,0 +1,192 @@
+package seedu.talkingcat;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class StorageTest {
+    @TempDir
+    Path dataDirectory;
+
+    private static TaskList listOf(String... descriptions) {
+        TaskList tasks = new TaskList();
+        for (String description : descriptions) {
+            tasks.addTask(new Todo(description));
+        }
+        return tasks;
+    }
+
+    private static int indexOf(byte[] bytes, byte[] pattern) {
+        for (int i = 0; i + pattern.length <= bytes.length; i++) {
+            int j = 0;
+            while (j < pattern.length && bytes[i + j] == pattern[j]) {
+                j++;
+            }
+            if (j == pattern.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    public void load_binaryRecordWithBrokenLength_quarantinesTailAndKeepsGoodRecords()
+            throws IOException, TalkingCatException {
+        for (byte brokenByte : new byte[] {(byte) 0xFF, (byte) 0x7F}) {
+            Path file = Files.createTempFile(dataDirectory, "binary", ".txt");
+            Storage storage = new Storage(file.toString());
+            storage.convert(listOf("alpha", "bravo", "charlie"), StorageFormat.BINARY);
+
+            byte[] bytes = Files.readAllBytes(file);
+            int lengthPrefix = indexOf(bytes, "charlie".getBytes(StandardCharsets.UTF_8)) - 4;
+            bytes[lengthPrefix] = brokenByte;
+            Files.write(file, bytes);
+
+            List<Task> loaded = new Storage(file.toString()).load();
+            assertEquals(2, loaded.size(), "Records before the broken one should still load.");
+            assertEquals("alpha", loaded.get(0).getDescription(), "First record should load unchanged.");
+            assertEquals("bravo", loaded.get(1).getDescription(), "Second record should load unchanged.");
+            Path quarantine = Path.of(file + ".corrupt");
+            assertTrue(Files.exists(quarantine), "The broken record should be quarantined.");
+            assertEquals(1, Files.readAllLines(quarantine).size(), "The broken tail should be quarantined once.");
+        }
+    }
+
+    @Test
+    public void saveAndLoad_descriptionContainingSeparator_roundTrips() throws IOException, TalkingCatException {
+        Path file = dataDirectory.resolve("separator.txt");
+        LocalDateTime time = LocalDateTime.of(2024, 2, 29, 18, 30);
+        TaskList tasks = new TaskList();
+        tasks.addTask(new Todo("pay rent | utilities"));
+        tasks.addTask(new Deadline("file | taxes", time));
+        tasks.addTask(new Event("standup | #general | 2024-02-29 18:30", time, time.plusHours(1)));
+        tasks.addTask(new Todo("deadbeef | #12"));
+        tasks.setDone(2, true);
+        Storage storage = new Storage(file.toString());
+        storage.save(tasks);
+
+        List<Task> loaded = new Storage(file.toString()).load();
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(tasks.getSize(), loaded.size(), "Every task should load.");
+        for (int i = 0; i < tasks.getSize(); i++) {
+            Task original = tasks.getTask(i);
+            for (Task task : List.of(loaded.get(i), storage.parseRecord(lines.get(i)))) {
+                assertEquals(original.toString(), task.toString(), "Task should round-trip: " + lines.get(i));
+                assertEquals(original.getId(), task.getId(), "ID should round-trip: " + lines.get(i));
+            }
+        }
+        assertTrue(Files.notExists(Path.of(file + ".corrupt")), "No record should be quarantined.");
+    }
+
+    private static void assertSameTasks(TaskList expected, List<Task> actual, String message) {
+        assertEquals(expected.getSize(), actual.size(), message);
+        for (int i = 0; i < expected.getSize(); i++) {
+            assertEquals(expected.getTask(i).toString(), actual.get(i).toString(), message);
+            assertEquals(expected.getTask(i).getId(), actual.get(i).getId(), message);
+        }
+    }
+
+    @Test
+    public void load_journaledAddDeleteMarkUnmark_replaysJournal() throws IOException, TalkingCatException {
+        Path file = dataDirectory.resolve("journaled.txt");
+        Storage storage = new Storage(file.toString(), true);
+        TaskList tasks = listOf("alpha", "bravo", "charlie");
+        storage.save(tasks);
+
+        Task delta = new Todo("delta");
+        tasks.addTask(delta);
+        storage.recordAdd(tasks, delta);
+        tasks.removeTask(1);
+        storage.recordDelete(tasks, 1);
+        tasks.setDone(0, true);
+        storage.recordMark(tasks, 0);
+        tasks.setDone(2, true);
+        storage.recordMark(tasks, 2);
+        tasks.setDone(2, false);
+        storage.recordUnmark(tasks, 2);
+        storage.flush();
+
+        assertTrue(Files.exists(Path.of(file + ".journal")), "Deletions should be journaled.");
+        assertSameTasks(tasks, new Storage(file.toString(), true).load(), "Journal should replay on load.");
+    }
+
+    @Test
+    public void load_saveInterruptedBeforeRename_keepsOldFileAndJournal() throws IOException, TalkingCatException {
+        Path file = dataDirectory.resolve("interrupted.txt");
+        Storage storage = new Storage(file.toString(), true);
+        TaskList tasks = listOf("alpha", "bravo", "charlie");
+        storage.save(tasks);
+        tasks.removeTask(0);
+        storage.recordDelete(tasks, 0);
+        storage.flush();
+
+        // Crash after the journal was moved aside but before the new file replaced the old one.
+        Path journal = Path.of(file + ".journal");
+        Files.move(journal, Path.of(journal + ".old"));
+        Files.writeString(Path.of(file + ".tmp"), "half-written");
+
+        assertSameTasks(tasks, new Storage(file.toString(), true).load(), "Old file and journal should be used.");
+        assertTrue(Files.notExists(Path.of(file + ".tmp")), "The half-written file should be removed.");
+        assertTrue(Files.notExists(Path.of(journal + ".old")), "The journal should be moved back.");
+    }
+
+    @Test
+    public void load_saveInterruptedAfterRename_dropsFoldedJournal() throws IOException, TalkingCatException {
+        Path file = dataDirectory.resolve("renamed.txt");
+        Storage storage = new Storage(file.toString(), true);
+        TaskList tasks = listOf("alpha", "bravo", "charlie");
+        storage.save(tasks);
+        tasks.removeTask(0);
+
+        // Crash after the new file replaced the old one but before the moved-aside journal was deleted.
+        Path oldJournal = Path.of(file + ".journal.old");
+        Files.writeString(oldJournal, "D | 0" + System.lineSeparator());
+        storage.save(tasks);
+        Files.writeString(oldJournal, "D | 0" + System.lineSeparator());
+
+        assertSameTasks(tasks, new Storage(file.toString(), true).load(), "The folded journal must not replay.");
+        assertTrue(Files.notExists(oldJournal), "The folded journal should be deleted.");
+    }
+
+    @Test
+    public void load_corruptTextRecord_quarantinesOnlyThatRecord() throws IOException, TalkingCatException {
+        Path file = dataDirectory.resolve("text.txt");
+        new Storage(file.toString()).save(listOf("alpha", "bravo", "charlie"));
+        List<String> lines = Files.readAllLines(file);
+        lines.set(1, lines.get(1).replace("bravo", "brave"));
+        Files.write(file, lines);
+
+        List<Task> loaded = new Storage(file.toString()).load();
+        assertEquals(2, loaded.size(), "Only the corrupt record should be skipped.");
+        assertEquals("alpha", loaded.get(0).getDescription(), "Record before the corrupt one should load.");
+        assertEquals("charlie", loaded.get(1).getDescription(), "Record after the corrupt one should load.");
+        Path quarantine = Path.of(file + ".corrupt");
+        assertEquals(1, Files.readAllLines(quarantine).size(), "The corrupt record should be quarantined.");
+        assertEquals(2, Files.readAllLines(file).size(), "The data file should be rewritten without it.");
+    }
+
+    @Test
+    public void load_corruptBinaryRecord_quarantinesOnlyThatRecord() throws IOException, TalkingCatException {
+        Path file = dataDirectory.resolve("binary.txt");
+        new Storage(file.toString()).convert(listOf("alpha", "bravo", "charlie"), StorageFormat.BINARY);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[indexOf(bytes, "bravo".getBytes(StandardCharsets.UTF_8))] = 'B';
+        Files.write(file, bytes);
+
+        List<Task> loaded = new Storage(file.toString()).load();
+        assertEquals(2, loaded.size(), "Only the corrupt record should be skipped.");
+        assertEquals("alpha", loaded.get(0).getDescription(), "Record before the corrupt one should load.");
+        assertEquals("charlie", loaded.get(1).getDescription(), "Record after the corrupt one should load.");
+        assertTrue(Files.exists(Path.of(file + ".corrupt")), "The corrupt record should be quarantined.");
+        assertSameTasks(new TaskList(loaded), new Storage(file.toString()).load(),
+                "The data file should be rewritten without it.");
+    }
+}
@@ -2,13 +2,30 @@ package seedu.talkingcat;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class TaskListTest {
     private TaskList taskList;
 
+    @TempDir
+    Path dataDirectory;
+
     @BeforeEach
     public void setUp() {
 
@@ -72,5 +89,211 @@ public class TaskListTest {
         assertEquals(1, matchingTasks.size(), "Should find one task with 'book' in its description.");
         assertTrue(matchingTasks.contains(task1), "The list should contain the task with 'Read book' description.");
     }
-}
 
+    @Test
+    public void snapshot_readDuringWrites_neverTorn() throws InterruptedException {
+        // Every command adds, removes, moves or marks a pair of tasks, so a torn snapshot breaks up a pair.
+        AtomicBoolean isStopped = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread reader = new Thread(() -> {
+                long lastVersion = -1;
+                while (!isStopped.get()) {
+                    TaskSnapshot snapshot = taskList.snapshot();
+                    if (snapshot.getVersion() < lastVersion) {
+                        failure.set("Snapshot version went backwards");
+                    }
+                    lastVersion = snapshot.getVersion();
+                    if (snapshot.size() % 2 != 0) {
+                        failure.set("Snapshot has an odd number of tasks: " + snapshot.size());
+                    }
+                    for (int j = 0; j + 1 < snapshot.size(); j += 2) {
+                        String first = snapshot.get(j).getRawDescription();
+                        String second = snapshot.get(j + 1).getRawDescription();
+                        if (!second.equals(first.replace(" a", " b")) || snapshot.isDone(j) != snapshot.isDone(j + 1)) {
+                            failure.set("Snapshot splits a pair at " + j + ": " + first + ", " + second);
+                        }
+                    }
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+
+        Random random = new Random(20);
+        for (int i = 0; i < 5000; i++) {
+            int pairs = taskList.getSize() / 2;
+            int choice = random.nextInt(4);
+            if (choice == 0 || pairs == 0) {
+                taskList.addTask(new Todo(i + " a"));
+                taskList.addTask(new Todo(i + " b"));
+            } else if (choice == 1) {
+                int position = random.nextInt(pairs) * 2;
+                taskList.removeTask(position + 1);
+                taskList.removeTask(position);
+            } else if (choice == 2) {
+                int position = random.nextInt(pairs + 1) * 2;
+                taskList.insertTask(position, new Todo(i + " b"));
+                taskList.insertTask(position, new Todo(i + " a"));
+            } else {
+                int position = random.nextInt(pairs) * 2;
+                boolean isDone = random.nextBoolean();
+                taskList.setDone(position, isDone);
+                taskList.setDone(position + 1, isDone);
+            }
+            taskList.commitChange("command " + i);
+        }
+        isStopped.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertNull(failure.get(), "Readers should only see the list between commands.");
+        assertEquals(taskList.asList(), taskList.snapshot(), "The last snapshot should match the list.");
+    }
+
+    @Test
+    public void selectById_afterEarlierTasksMove_findsSameTask() throws TalkingCatException {
+        for (int i = 0; i < 5; i++) {
+            taskList.addTask(new Todo("task " + i));
+        }
+        Task task = taskList.getTask(3);
+        int id = task.getId();
+
+        taskList.removeTask(0);
+        taskList.insertTask(0, new Todo("new first"));
+        taskList.insertTask(0, new Todo("newer first"));
+
+        assertEquals(4, TaskSelector.byId(id).resolve(taskList), "ID should select the task at its new position.");
+        assertEquals(task, taskList.getTaskById(id), "ID should still refer to the same task.");
+        taskList.removeTask(4);
+        assertThrows(TalkingCatException.class, () -> TaskSelector.byId(id).resolve(taskList),
+                "ID of a removed task should not select anything.");
+    }
+
+    private static List<String> describe(List<Task> tasks) {
+        List<String> descriptions = new ArrayList<>();
+        for (Task task : tasks) {
+            descriptions.add("#" + task.getId() + " " + task.getDescription() + (task.isDone ? " done" : ""));
+        }
+        return descriptions;
+    }
+
+    private static String run(String line, TaskList tasks, Storage storage) throws TalkingCatException {
+        String result = Parser.parse(line).execute(tasks, new Ui(), storage);
+        tasks.commitChange(line);
+        return result;
+    }
+
+    @Test
+    public void undoAndRedo_mixedChanges_restoreListIdsAndStorage() throws IOException, TalkingCatException {
+        String dataFile = dataDirectory.resolve("tasks.txt").toString();
+        Path importFile = dataDirectory.resolve("import.txt");
+        Files.write(importFile, List.of("todo imported one", "deadline imported two /by 2024-03-01 1800"));
+        Storage storage = new Storage(dataFile, true);
+        List<String> commands = List.of("todo a", "todo b", "todo c", "todo d", "todo e", "mark 2", "delete 3",
+                "mark 1-3", "delete 1,#4", "import " + importFile, "unmark all", "delete all done:false");
+        List<List<String>> states = new ArrayList<>();
+        states.add(describe(taskList.asList()));
+        for (String command : commands) {
+            run(command, taskList, storage);
+            states.add(describe(taskList.asList()));
+        }
+
+        for (int i = commands.size() - 1; i >= 0; i--) {
+            run("undo", taskList, storage);
+            storage.flush();
+            assertEquals(states.get(i), describe(taskList.asList()), "Undo should restore the list before: "
+                    + commands.get(i));
+            assertEquals(states.get(i), describe(new Storage(dataFile, true).load()),
+                    "Storage should match after undoing: " + commands.get(i));
+        }
+        assertEquals("Nothing to undo.", run("undo", taskList, storage), "Every change should have been undone.");
+
+        for (int i = 1; i <= commands.size(); i++) {
+            run("redo", taskList, storage);
+            storage.flush();
+            assertEquals(states.get(i), describe(taskList.asList()), "Redo should reapply: " + commands.get(i - 1));
+            assertEquals(states.get(i), describe(new Storage(dataFile, true).load()),
+                    "Storage should match after redoing: " + commands.get(i - 1));
+        }
+        assertEquals("Nothing to redo.", run("redo", taskList, storage), "Every change should have been redone.");
+
+        run("undo", taskList, storage);
+        run("undo", taskList, storage);
+        run("todo f", taskList, storage);
+        assertEquals("Nothing to redo.", run("redo", taskList, storage), "A new change should drop undone ones.");
+        Task added = taskList.getTask(taskList.getSize() - 1);
+        assertEquals(added, taskList.getTaskById(added.getId()), "The new task should be found by its ID.");
+        assertEquals(describe(taskList.asList()), describe(new Storage(dataFile, true).load()),
+                "Storage should match after the new change.");
+    }
+
+    @Test
+    public void history_pastBudget_forgetsOldestChanges() {
+        TaskHistory history = new TaskHistory(1000);
+        for (int i = 0; i < 20; i++) {
+            history.record(TaskHistory.Edit.add(i, new Todo("task " + i), true));
+            history.commit("todo task " + i);
+        }
+
+        assertTrue(history.getUsedBytes() <= history.getBudgetBytes(), "History should stay within its budget.");
+        List<TaskHistory.Change> kept = history.getUndoableChanges();
+        assertEquals(20, kept.size() + history.getForgottenChanges(), "Every change should be kept or forgotten.");
+        assertTrue(history.getForgottenChanges() > 0, "Some changes should have been forgotten.");
+        assertEquals("todo task 19", kept.get(0).getLabel(), "The newest change should be kept.");
+        assertEquals("todo task " + history.getForgottenChanges(), kept.get(kept.size() - 1).getLabel(),
+                "The oldest changes should be forgotten first.");
+
+        TaskHistory.Change undone = history.popUndo();
+        history.pushRedo(undone);
+        history.record(TaskHistory.Edit.remove(0, new Todo("x".repeat(200))));
+        history.commit("delete 1");
+        assertEquals(0, history.getRedoableCount(), "A new change should drop the redoable ones.");
+        assertTrue(history.getUsedBytes() <= history.getBudgetBytes(), "History should stay within its budget.");
+        assertEquals("delete 1", history.peekUndo().getLabel(), "The newest change should be kept.");
+    }
+
+    @Test
+    public void read_findAndListAll_showStatusInSnapshot() throws TalkingCatException {
+        taskList.addTask(new Todo("Read book"));
+        taskList.addTask(new Todo("Return book"));
+        taskList.commitChange("setup");
+        TaskSnapshot snapshot = taskList.snapshot();
+        taskList.setDone(1, true);
+        Ui ui = new Ui(Writer.nullWriter());
+
+        String matches = Parser.parse("find return").read(snapshot, ui);
+        assertEquals("Here are the matching tasks in your list:\n1.[TODO][ ] Return book #2\n", matches,
+                "Find should show the status in the snapshot, not the newer one.");
+        String all = Parser.parse("list all").read(snapshot, ui);
+        assertEquals("1.[TODO][ ] Read book #1\n2.[TODO][ ] Return book #2\nListed all 2 tasks.", all,
+                "List all should return every task with its status in the snapshot.");
+    }
+
+    @Test
+    public void find_pageEndsWithLastMatch_offersNoNextPage() throws TalkingCatException {
+        for (String description : new String[] {"abc one", "abc two", "abc three", "other"}) {
+            taskList.addTask(new Todo(description));
+        }
+        taskList.commitChange("setup");
+        Ui ui = new Ui(Writer.nullWriter());
+
+        for (String keyword : new String[] {"abc", "a"}) {
+            for (String input : new String[] {"find --limit 3 ", "find --offset 2 --limit 1 "}) {
+                Command command = Parser.parse(input + keyword);
+                String executed = command.execute(taskList, ui, null);
+                for (String reply : List.of(executed, command.read(taskList.snapshot(), ui))) {
+                    assertFalse(reply.contains("to see more"), "No next page should be offered: " + input + keyword);
+                }
+            }
+            Command command = Parser.parse("find --limit 2 " + keyword);
+            for (String reply : List.of(command.execute(taskList, ui, null), command.read(taskList.snapshot(), ui))) {
+                assertTrue(reply.endsWith("Showing matches 1 to 2. Use --offset 2 to see more.\n"),
+                        "The next page should be offered: find --limit 2 " + keyword);
+                assertFalse(reply.contains("abc three"), "Only the page should be shown: find --limit 2 " + keyword);
+            }
+        }
+    }
+}
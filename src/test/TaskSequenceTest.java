@@ -0,0 +1,69 @@
+package seedu.talkingcat;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+public class TaskSequenceTest {
+    private static void assertSameOrder(List<Task> expected, TaskSequence sequence, String message) {
+        assertEquals(expected.size(), sequence.size(), message);
+        for (int i = 0; i < expected.size(); i++) {
+            assertTrue(expected.get(i) == sequence.get(i), message + " at " + i);
+            assertEquals(i, sequence.indexOf(expected.get(i)), message + " at " + i);
+        }
+    }
+
+    @Test
+    public void constructor_fromList_keepsOrder() {
+        List<Task> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            expected.add(new Todo("task " + i));
+        }
+        TaskSequence sequence = new TaskSequence(expected);
+
+        assertSameOrder(expected, sequence, "Sequence built from a list should keep its order.");
+        assertEquals(expected, new ArrayList<>(sequence), "Iteration should follow the list order.");
+    }
+
+    @Test
+    public void addAndRemove_randomPositions_matchesArrayList() {
+        Random random = new Random(13);
+        List<Task> expected = new ArrayList<>();
+        TaskSequence sequence = new TaskSequence(new ArrayList<>());
+        List<Task> removed = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            if (expected.isEmpty() || random.nextInt(3) > 0) {
+                int index = random.nextInt(expected.size() + 1);
+                Task task = new Todo("task " + i);
+                expected.add(index, task);
+                sequence.add(index, task);
+            } else {
+                int index = random.nextInt(expected.size());
+                Task task = expected.remove(index);
+                assertTrue(task == sequence.remove(index), "Removed task should match at step " + i);
+                removed.add(task);
+            }
+            if (i % 500 == 0) {
+                assertSameOrder(expected, sequence, "Sequence should match after step " + i);
+            }
+        }
+
+        assertSameOrder(expected, sequence, "Sequence should match after every step.");
+        for (Task task : removed) {
+            assertEquals(-1, sequence.indexOf(task), "A removed task should not be found.");
+            assertFalse(sequence.contains(task), "A removed task should not be contained.");
+        }
+        int start = expected.size() / 2;
+        Iterator<Task> iterator = sequence.iterator(start);
+        for (int i = start; i < expected.size(); i++) {
+            assertTrue(expected.get(i) == iterator.next(), "Iteration from the middle should match at " + i);
+        }
+        assertFalse(iterator.hasNext(), "Iteration from the middle should stop at the end.");
+    }
+}